@@ -0,0 +1,69 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.*;
+
+/**
+ * CompressedIngestBenchmark: 比较直接流式读取 .gz / .zip 与“先解压到临时目录再加载”的耗时。
+ * 用法：java -cp out CompressedIngestBenchmark [files] [tokensPerFile]
+ */
+public class CompressedIngestBenchmark {
+    public static void main(String[] args) throws IOException {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int tokens = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        Path root = Files.createTempDirectory("ingest-bench");
+        Path gzDir = Files.createDirectories(root.resolve("gz"));
+        Path zip = root.resolve("corpus.zip");
+        long raw = 0;
+        try (ZipOutputStream zout = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (int i = 0; i < files; i++) {
+                byte[] text = SyntheticCorpus.text(tokens, 50_000, i).getBytes("UTF-8");
+                raw += text.length;
+                String name = String.format("doc%05d.txt", i);
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzDir.resolve(name + ".gz")))) {
+                    out.write(text);
+                }
+                zout.putNextEntry(new ZipEntry(name));
+                zout.write(text);
+                zout.closeEntry();
+            }
+        }
+        System.out.printf("files=%d  uncompressed=%.1f MB%n", files, raw / 1e6);
+        CorpusLoader loader = new CorpusLoader(Tokenizer.ascii(), false);
+        List<Path> gzFiles = CorpusLoader.listFiles(gzDir, "*.gz");
+
+        for (int round = 0; round < 2; round++) {  // 第一轮用于预热
+            long t0 = System.nanoTime();
+            int n1 = loader.load(gzFiles, null).graph.size();
+            long t1 = System.nanoTime();
+            Path tmp = Files.createTempDirectory(root, "gunzip");
+            for (Path gz : gzFiles) {
+                String name = gz.getFileName().toString().replace(".gz", "");
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(gz))) {
+                    Files.copy(in, tmp.resolve(name));
+                }
+            }
+            int n2 = loader.load(CorpusLoader.listFiles(tmp, "*.txt"), null).graph.size();
+            long t2 = System.nanoTime();
+            int n3 = loader.load(List.of(zip), null).graph.size();
+            long t3 = System.nanoTime();
+            Path tmpZip = Files.createTempDirectory(root, "unzip");
+            try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+                for (ZipEntry e; (e = in.getNextEntry()) != null; ) Files.copy(in, tmpZip.resolve(e.getName()));
+            }
+            int n4 = loader.load(CorpusLoader.listFiles(tmpZip, "*.txt"), null).graph.size();
+            long t4 = System.nanoTime();
+            if (round == 1) {
+                System.out.printf("gz  streaming:          %6.0f ms (%d nodes)%n", (t1 - t0) / 1e6, n1);
+                System.out.printf("gz  decompress + load:  %6.0f ms (%d nodes)%n", (t2 - t1) / 1e6, n2);
+                System.out.printf("zip streaming:          %6.0f ms (%d nodes)%n", (t3 - t2) / 1e6, n3);
+                System.out.printf("zip decompress + load:  %6.0f ms (%d nodes)%n", (t4 - t3) / 1e6, n4);
+            }
+        }
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path p : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) Files.delete(p);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * HigherOrderBenchmark: 比较相邻词图（GraphBuilder）与 k 阶上下文图（HigherOrderGraph, k = 1..3）
+ * 的构建吞吐量与常驻内存，并给出 k 阶图生成 CSR 快照（TextGraph 实际常驻的形式）的耗时与内存。
+ * 开始前先检查 k = 1 的上下文图与相邻词图完全相同（含只有一个单词的文件），不同时抛出 IllegalStateException。
+ * 用法：java -Xmx8g -cp out HigherOrderBenchmark [tokens] [vocab]
+ */
+public class HigherOrderBenchmark {
+    public static void main(String[] args) throws IOException {
+        checkOrderOneMatchesBigram();
+        int tokens = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int vocab = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        String text = SyntheticCorpus.text(tokens, vocab, 42);
+        Tokenizer tokenizer = Tokenizer.ascii();
+        System.out.printf("tokens=%d vocab=%d text=%.1f MB%n", tokens, vocab, text.length() / 1e6);
+
+        for (int round = 0; round < 2; round++) {  // 第一轮用于预热
+            boolean print = round == 1;
+            measure(print, "bigram (map)", () -> GraphBuilder.build(text, tokenizer), tokens,
+                    g -> String.format("nodes=%d edges=%d", g.size(), g.values().stream().mapToInt(Map::size).sum()));
+            for (int k = 1; k <= 3; k++) {
+                int order = k;
+                HigherOrderGraph h = measure(print, "order-" + k + " (packed)",
+                        () -> {
+                            try {
+                                return HigherOrderGraph.build(text, tokenizer, order);
+                            } catch (IOException ex) {
+                                throw new UncheckedIOException(ex);
+                            }
+                        }, tokens,
+                        g -> String.format("contexts=%d edges=%d tables=%.0f MB",
+                                g.contextCount(), g.edgeCount(), g.tableBytes() / 1e6));
+                measure(print, "order-" + k + " (csr)",
+                        () -> h.toCompact(1, CompactGraph.NodeOrder.LEXICOGRAPHIC), tokens,
+                        g -> String.format("nodes=%d edges=%d", g.size(), g.edgeCount()));
+            }
+        }
+    }
+
+    // k = 1 的上下文图应与相邻词图相同：单段文本、只有一个单词的文本，以及含单词文件与空文件的目录（连边与不连边）
+    private static void checkOrderOneMatchesBigram() throws IOException {
+        Tokenizer tokenizer = Tokenizer.ascii();
+        String text = SyntheticCorpus.text(20_000, 500, 7);
+        for (String t : new String[]{text, "lonely", "lonely lonely", ""})
+            sameGraph("text \"" + (t.length() > 20 ? t.substring(0, 20) + "…" : t) + "\"",
+                    CompactGraph.of(GraphBuilder.build(t, tokenizer), 1, CompactGraph.NodeOrder.LEXICOGRAPHIC),
+                    HigherOrderGraph.build(t, tokenizer, 1).toCompact(1, CompactGraph.NodeOrder.LEXICOGRAPHIC));
+
+        Path dir = Files.createTempDirectory("higher-order-check");
+        try {
+            Files.writeString(dir.resolve("a.txt"), text.substring(0, text.length() / 2));
+            Files.writeString(dir.resolve("b.txt"), "  Lonely!  ");
+            Files.writeString(dir.resolve("c.txt"), "");
+            Files.writeString(dir.resolve("d.txt"), text.substring(text.length() / 2));
+            List<Path> files = CorpusLoader.listFiles(dir, "*.txt");
+            for (boolean link : new boolean[]{false, true}) {
+                CorpusLoader loader = new CorpusLoader(tokenizer, link);
+                sameGraph("directory link=" + link,
+                        CompactGraph.of(loader.load(files, null).graph, 1, CompactGraph.NodeOrder.LEXICOGRAPHIC),
+                        loader.loadContexts(files, 1, null).contexts
+                                .toCompact(1, CompactGraph.NodeOrder.LEXICOGRAPHIC));
+            }
+        } finally {
+            for (Path p : CorpusLoader.listFiles(dir, "*")) Files.delete(p);
+            Files.delete(dir);
+        }
+        System.out.println("order-1 context graph matches the bigram graph");
+    }
+
+    private static void sameGraph(String what, CompactGraph expected, CompactGraph actual) {
+        if (!Arrays.equals(expected.words, actual.words) || !Arrays.equals(expected.offsets, actual.offsets)
+                || !Arrays.equals(expected.targets, actual.targets) || !Arrays.equals(expected.weights, actual.weights))
+            throw new IllegalStateException("order-1 上下文图与相邻词图不同: " + what + "（节点 " + expected.size()
+                    + " / " + actual.size() + "，边 " + expected.edgeCount() + " / " + actual.edgeCount() + "）");
+    }
+
+    // 构建一次，打印耗时、吞吐量与构建前后的堆占用差；返回构建结果
+    private static <T> T measure(boolean print, String name, Supplier<T> build, int tokens,
+                                 Function<T, String> describe) {
+        long before = usedHeap();
+        long t0 = System.nanoTime();
+        T result = build.get();
+        long nanos = System.nanoTime() - t0;
+        long after = usedHeap();
+        if (print)
+            System.out.printf("%-22s %7.0f ms  %6.1f M tokens/s  heap +%6.0f MB  %s%n", name, nanos / 1e6,
+                    tokens / (nanos / 1e9) / 1e6, (after - before) / 1e6, describe.apply(result));
+        return result;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
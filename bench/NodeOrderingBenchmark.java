@@ -0,0 +1,34 @@
+import java.util.*;
+
+/**
+ * NodeOrderingBenchmark: 比较不同节点编号方式下 PageRank 与 Dijkstra 的耗时。
+ * 用法：java -cp out NodeOrderingBenchmark [tokens] [vocab]
+ */
+public class NodeOrderingBenchmark {
+    public static void main(String[] args) {
+        int tokens = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int vocab = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+        Map<String, Map<String, Integer>> graph = SyntheticCorpus.bigramGraph(SyntheticCorpus.tokens(tokens, vocab, 42));
+        System.out.printf("tokens=%d vocab=%d%n", tokens, vocab);
+
+        for (int round = 0; round < 2; round++) {  // 第一轮用于预热
+            for (CompactGraph.NodeOrder order : CompactGraph.NodeOrder.values()) {
+                long t0 = System.nanoTime();
+                CompactGraph g = CompactGraph.of(graph, round, order);
+                long t1 = System.nanoTime();
+                g.pageRank();
+                long t2 = System.nanoTime();
+                // 固定的一组起点（按单词选取，与编号方式无关）
+                int checksum = 0;
+                for (int i = 0; i < 20; i++) {
+                    ShortestPaths.Tree tree = ShortestPaths.dijkstra(g, g.id(SyntheticCorpus.word(i * 997 % vocab)), null);
+                    checksum += tree.dist[g.id(SyntheticCorpus.word(1))];
+                }
+                long t3 = System.nanoTime();
+                if (round == 1)
+                    System.out.printf("%-14s nodes=%d edges=%d build=%6.0f ms  pagerank=%6.0f ms  dijkstra x20=%6.0f ms  (checksum %d)%n",
+                            order, g.size(), g.edgeCount(), (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6, checksum);
+            }
+        }
+    }
+}
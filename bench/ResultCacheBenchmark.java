@@ -0,0 +1,71 @@
+import java.util.*;
+
+/**
+ * ResultCacheBenchmark: 回放按 Zipf 分布抽取的桥接词 / 最短路径查询日志，
+ * 比较开启与关闭结果缓存（textgraph.cache.mb=0）时的单次延迟与吞吐。
+ * 用法：java -cp out ResultCacheBenchmark [queries] [tokens] [vocab] [zipf-s]
+ */
+public class ResultCacheBenchmark {
+    public static void main(String[] args) {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int tokens = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        int vocab = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        double s = args.length > 3 ? Double.parseDouble(args[3]) : 1.1;
+        Map<String, Map<String, Integer>> graph = SyntheticCorpus.bigramGraph(SyntheticCorpus.tokens(tokens, vocab, 42));
+
+        // 查询日志：单词对按 Zipf(s) 从 vocab 个不同的对中抽取，偶数为桥接词、奇数为最短路径
+        String[][] log = zipfLog(queries, vocab, s, 7);
+        System.out.printf("queries=%d tokens=%d vocab=%d zipf-s=%.2f nodes=%d%n", queries, tokens, vocab, s, graph.size());
+
+        long checksum = -1;
+        for (String mb : new String[]{"64", "0"}) {
+            System.setProperty("textgraph.cache.mb", mb);
+            TextGraph engine = new TextGraph();
+            engine.installGraph(graph, "synthetic");
+            replay(engine, log, queries / 10);  // 预热（不计时）；缓存开启时也会带入热点结果
+            long[] nanos = new long[queries];
+            long sum = 0, t0 = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                long q0 = System.nanoTime();
+                String r = run(engine, log[i]);
+                nanos[i] = System.nanoTime() - q0;
+                sum += r.length();
+            }
+            double secs = (System.nanoTime() - t0) / 1e9;
+            Arrays.sort(nanos);
+            System.out.printf("cache=%-3s MB  mean=%8.1f us  p50=%8.1f us  p99=%9.1f us  %9.0f q/s%n", mb,
+                    Arrays.stream(nanos).average().orElse(0) / 1e3, nanos[queries / 2] / 1e3,
+                    nanos[(int) (queries * 0.99)] / 1e3, queries / secs);
+            System.out.println("  " + engine.cacheStats());
+            if (checksum >= 0 && checksum != sum) System.out.println("  结果不一致！");
+            checksum = sum;
+        }
+    }
+
+    private static String run(TextGraph engine, String[] q) {
+        return q[0].equals("bridge") ? engine.queryBridgeWords(q[1], q[2]) : engine.calcShortestPath(q[1], q[2]);
+    }
+
+    private static void replay(TextGraph engine, String[][] log, int count) {
+        for (int i = 0; i < count; i++) run(engine, log[i]);
+    }
+
+    private static String[][] zipfLog(int queries, int pairs, double s, long seed) {
+        // 累积分布 + 二分查找抽样，排名 k 的概率正比于 1 / k^s
+        double[] cdf = new double[pairs];
+        double acc = 0;
+        for (int k = 0; k < pairs; k++) cdf[k] = acc += 1 / Math.pow(k + 1, s);
+        Random rnd = new Random(seed);
+        String[][] log = new String[queries][];
+        for (int i = 0; i < queries; i++) {
+            int k = Arrays.binarySearch(cdf, rnd.nextDouble() * acc);
+            if (k < 0) k = -k - 1;
+            // 第 k 个单词对：用固定的散列把排名映射到两个单词，使热门对不集中在高频词上
+            long h = (k + 1) * 0x9E3779B97F4A7C15L;
+            String a = SyntheticCorpus.word((int) Math.floorMod(h, (long) pairs));
+            String b = SyntheticCorpus.word((int) Math.floorMod(h >>> 21, (long) pairs));
+            log[i] = new String[]{(k & 1) == 0 ? "bridge" : "path", a, b};
+        }
+        return log;
+    }
+}
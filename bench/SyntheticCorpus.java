@@ -0,0 +1,59 @@
+import java.util.*;
+
+/**
+ * SyntheticCorpus: 基准测试用的合成语料。
+ * 词频服从 Zipf 分布，并带有简单的“话题”局部性：每个段落偏向词表中的一段区间，
+ * 使生成的词图既有高频中心词，也有局部聚集的结构。结果只由种子决定。
+ */
+final class SyntheticCorpus {
+    private SyntheticCorpus() {}
+
+    /** 词表中第 i 个单词（纯小写字母，可被默认分词器原样切出） */
+    static String word(int i) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('a' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return sb.append("x").toString();
+    }
+
+    /** 生成 tokens 个单词编号，词表大小为 vocab */
+    static int[] tokens(int tokens, int vocab, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        // Zipf(s=1) 的累计分布，用二分查找采样
+        double[] cdf = new double[vocab];
+        double sum = 0;
+        for (int i = 0; i < vocab; i++) cdf[i] = sum += 1.0 / (i + 1);
+        int[] out = new int[tokens];
+        int topicBase = 0, topicSpan = Math.max(1, vocab / 64);
+        for (int i = 0; i < tokens; i++) {
+            if (i % 200 == 0) topicBase = rnd.nextInt(vocab);
+            int rank = Arrays.binarySearch(cdf, rnd.nextDouble() * sum);
+            if (rank < 0) rank = -rank - 1;
+            // 一半高频功能词按全局排名，另一半落在当前话题区间
+            out[i] = rank < 100 || rnd.nextBoolean()
+                    ? Math.min(rank, vocab - 1)
+                    : (topicBase + rank % topicSpan) % vocab;
+        }
+        return out;
+    }
+
+    /** 以空格连接的文本 */
+    static String text(int tokens, int vocab, long seed) {
+        StringBuilder sb = new StringBuilder(tokens * 6);
+        for (int t : tokens(tokens, vocab, seed)) sb.append(word(t)).append(' ');
+        return sb.toString();
+    }
+
+    /** 与 TextGraph.buildGraph 相同规则的邻接表（相邻单词连边，权重为次数） */
+    static Map<String, Map<String, Integer>> bigramGraph(int[] tokens) {
+        Map<String, Map<String, Integer>> graph = new HashMap<>();
+        for (int i = 0; i + 1 < tokens.length; i++) {
+            String a = word(tokens[i]), b = word(tokens[i + 1]);
+            graph.computeIfAbsent(a, k -> new HashMap<>()).merge(b, 1, Integer::sum);
+            graph.computeIfAbsent(b, k -> new HashMap<>());
+        }
+        return graph;
+    }
+}
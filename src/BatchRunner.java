@@ -0,0 +1,229 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * BatchRunner: 无界面的批处理模式。加载语料（文件或目录）或快照文件后，逐行执行脚本中的查询，
+ * 每条查询输出一行 JSON：{"id":行号,"cmd":"命令","result":结果}，出错时以 "error" 代替 "result"。
+ * <pre>
+ * 用法：java -cp out TextGraphAnalyzer (--corpus 文件或目录 [--glob 模式] [--link] | --snapshot 快照.tgs)
+ *           --script 脚本或- [--out 输出文件] [--threads N] [--seed S]
+ * --link 与界面中“跨文件连边”相同：加载目录时把相邻文件的末词与首词连边。
+ * 脚本每行一条命令，空行与 # 开头的行忽略：
+ *   bridge w1 w2      查询桥接词
+ *   generate 文本…    根据桥接词生成新文本
+ *   path w1 [w2]      最短路径，省略 w2 时输出到所有节点的最短路径
+ *   pagerank w        PageRank 值
+ *   walk              随机游走
+ * </pre>
+ * 脚本按行流式读取，查询交给固定大小的线程池执行；任务队列有界，读取线程按提交顺序等待最早的结果并写出，
+ * 在途查询不超过 WINDOW_PER_THREAD × 线程数，因此内存占用与脚本行数无关，输出顺序与脚本一致。
+ * generate 与 walk 的随机数由 --seed 与行号决定，同一种子下结果与线程数无关。
+ */
+final class BatchRunner {
+    // 每个工作线程对应的在途查询数：足以让线程在写出期间不空闲，又不会积压过多结果
+    private static final int WINDOW_PER_THREAD = 64;
+
+    private final TextGraph engine;
+    private final long seed;
+
+    BatchRunner(TextGraph engine, long seed) {
+        this.engine = engine;
+        this.seed = seed;
+    }
+
+    private static final String USAGE = String.join("\n",
+            "用法: TextGraphAnalyzer (--corpus 文件或目录 [--glob 模式] [--link] | --snapshot 快照.tgs)",
+            "                        --script 脚本或- [--out 输出文件] [--threads N] [--seed S]",
+            "脚本命令: bridge w1 w2 | generate 文本… | path w1 [w2] | pagerank w | walk");
+
+    /** 命令行入口，返回进程退出码：0 成功，1 读写失败，2 参数或系统属性（textgraph.*）错误 */
+    static int run(String[] args) {
+        String corpus = null, glob = "*.{txt,gz,zip}", snapshot = null, script = null, out = null;
+        boolean link = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String opt = args[i];
+                if (opt.equals("--link")) {
+                    link = true;
+                    continue;
+                }
+                if (i + 1 == args.length) throw new IllegalArgumentException("缺少参数值: " + opt);
+                String v = args[++i];
+                switch (opt) {
+                    case "--corpus": corpus = v; break;
+                    case "--glob": glob = v; break;
+                    case "--snapshot": snapshot = v; break;
+                    case "--script": script = v; break;
+                    case "--out": out = v; break;
+                    case "--threads": threads = Integer.parseInt(v); break;
+                    case "--seed": seed = Long.parseLong(v); break;
+                    default: throw new IllegalArgumentException("未知选项: " + opt);
+                }
+            }
+            if ((corpus == null) == (snapshot == null))
+                throw new IllegalArgumentException("--corpus 与 --snapshot 必须且只能给出一个");
+            if (script == null) throw new IllegalArgumentException("缺少 --script");
+            if (threads < 1) throw new IllegalArgumentException("--threads 必须为正整数");
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        try {
+            long t0 = System.nanoTime();
+            TextGraph engine = new TextGraph();
+            if (snapshot != null) {
+                engine.restoreSnapshot(Paths.get(snapshot));
+            } else {
+                Path p = Paths.get(corpus);
+                if (Files.isDirectory(p)) engine.loadDirectory(p, glob, link, null);
+                else engine.loadFile(p);
+            }
+            System.err.printf("已加载，节点数=%d，用时 %.1f 秒%n", engine.size(), (System.nanoTime() - t0) / 1e9);
+
+            long t1 = System.nanoTime();
+            long count;
+            try (BufferedReader in = script.equals("-")
+                    ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                    : Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8);
+                 Writer w = out == null
+                         ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                         : Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+                count = new BatchRunner(engine, seed).execute(in, w, threads);
+            }
+            double secs = (System.nanoTime() - t1) / 1e9;
+            System.err.printf("执行 %d 条查询，用时 %.1f 秒，%.0f 条/秒%n", count, secs, count / secs);
+            System.err.println(engine.cacheStats());
+            return 0;
+        } catch (IOException | UncheckedIOException | IllegalStateException ex) {
+            System.err.println("失败: " + ex.getMessage());
+            return 1;
+        } catch (IllegalArgumentException ex) {
+            // 创建引擎或加载时读取的 textgraph.* 系统属性不合法
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+    }
+
+    /**
+     * 执行 in 中的全部命令，按脚本顺序把结果写入 out，返回执行的命令数。
+     * 在途查询由 window 限定；线程池的队列容量与 window 相同，正常情况下不会满，
+     * 万一满了由读取线程自己执行（CallerRunsPolicy），不会丢弃查询。
+     */
+    long execute(BufferedReader in, Writer out, int threads) throws IOException {
+        int window = threads * WINDOW_PER_THREAD;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(window), new ThreadPoolExecutor.CallerRunsPolicy());
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>(window);
+        long count = 0;
+        try {
+            String line;
+            for (long id = 1; (line = in.readLine()) != null; id++) {
+                String cmd = line.trim();
+                if (cmd.isEmpty() || cmd.startsWith("#")) continue;
+                if (pending.size() == window) write(out, pending.poll());
+                long lineNo = id;
+                pending.add(pool.submit(() -> answer(lineNo, cmd)));
+                count++;
+            }
+            while (!pending.isEmpty()) write(out, pending.poll());
+        } finally {
+            pool.shutdownNow();
+        }
+        return count;
+    }
+
+    private static void write(Writer out, Future<String> result) throws IOException {
+        try {
+            out.write(result.get());
+            out.write('\n');
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("批处理被中断");
+        } catch (ExecutionException ex) {
+            // answer 已捕获查询中的异常，这里只会是 Error 之类无法继续的情况
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /** 执行一行命令，返回该行的 JSON 输出 */
+    String answer(long id, String line) {
+        String[] parts = line.split("\\s+");
+        String cmd = parts[0].toLowerCase();
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("{\"id\":").append(id).append(",\"cmd\":");
+        quote(sb, cmd);
+        try {
+            String result;
+            switch (cmd) {
+                case "bridge":
+                    arity(parts, 2, 2);
+                    result = engine.queryBridgeWords(parts[1], parts[2]);
+                    break;
+                case "generate":
+                    arity(parts, 1, Integer.MAX_VALUE);
+                    result = engine.generateNewText(line.substring(parts[0].length()).trim(), random(id));
+                    break;
+                case "path":
+                    arity(parts, 1, 2);
+                    result = engine.calcShortestPath(parts[1], parts.length > 2 ? parts[2] : null);
+                    break;
+                case "pagerank":
+                    arity(parts, 1, 1);
+                    return sb.append(",\"result\":").append(engine.calPageRank(parts[1])).append('}').toString();
+                case "walk":
+                    arity(parts, 0, 0);
+                    result = engine.randomWalk(random(id));
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知命令: " + parts[0]);
+            }
+            sb.append(",\"result\":");
+            quote(sb, result);
+        } catch (RuntimeException ex) {
+            sb.append(",\"error\":");
+            quote(sb, ex.getMessage() != null ? ex.getMessage() : ex.toString());
+        }
+        return sb.append('}').toString();
+    }
+
+    private static void arity(String[] parts, int min, int max) {
+        int n = parts.length - 1;
+        if (n < min || n > max)
+            throw new IllegalArgumentException(parts[0] + " 的参数个数不正确");
+    }
+
+    // 每行一个独立的随机数流，只取决于种子与行号
+    private Random random(long id) {
+        return new Random(seed ^ id * 0x9E3779B97F4A7C15L);
+    }
+
+    /** 追加 JSON 字符串字面量 */
+    static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,305 @@
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+/**
+ * CompactGraph: 某一图版本的只读 CSR（压缩邻接数组）快照。
+ * 第 u 个节点的出边存放在 [offsets[u], offsets[u+1]) 区间内，且按目标编号升序排列。
+ * 构建后按 {@link NodeOrder} 对节点重新编号以改善遍历时的内存局部性；
+ * 输出报告时应按 lexOrder（字典序）遍历，使结果不依赖于编号方式。
+ * 快照一经构建不再修改，可被多个线程同时读取。
+ */
+final class CompactGraph {
+    /**
+     * 节点编号方式，由系统属性 textgraph.nodeOrder（lex / degree / rcm）选择，默认 lex。
+     * NodeOrderingBenchmark 中 rcm 与 degree 相对 lex 没有稳定的收益（PageRank 反而略慢），故不作为默认。
+     */
+    enum NodeOrder {
+        /** 按单词字典序 */
+        LEXICOGRAPHIC,
+        /** 按总度数降序，高频词集中在数组前部 */
+        DEGREE,
+        /** Reverse Cuthill-McKee：BFS 相邻的节点编号相近，边的两端落在相近的内存位置 */
+        RCM;
+
+        /** 读取 textgraph.nodeOrder；由 TextGraph 在创建时读取一次，取值非法时抛出 IllegalArgumentException */
+        static NodeOrder fromConfig() {
+            String v = System.getProperty("textgraph.nodeOrder", "lex").trim().toLowerCase();
+            switch (v) {
+                case "lex": return LEXICOGRAPHIC;
+                case "degree": return DEGREE;
+                case "rcm": return RCM;
+                default: throw new IllegalArgumentException("未知的 textgraph.nodeOrder: " + v);
+            }
+        }
+    }
+
+    final long version;
+    final String[] words;     // 编号 -> 单词
+    final int[] offsets;      // 长度 n+1
+    final int[] targets;      // 出边目标编号
+    final int[] weights;      // 出边权重
+    final int[] outWeight;    // 每个节点出边权重之和
+    final int[] lexOrder;     // 字典序第 i 个单词的编号
+    final int[] lexRank;      // 编号 -> 字典序名次
+    private final Map<String, Integer> ids;
+    private double[] pageRank;
+    private volatile int[] cumulativeWeights;
+
+    private CompactGraph(long version, String[] words, int[] offsets, int[] targets, int[] weights, int[] lexRank) {
+        this.version = version;
+        this.words = words;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.outWeight = new int[words.length];
+        this.ids = new HashMap<>(words.length * 2);
+        for (int i = 0; i < words.length; i++) ids.put(words[i], i);
+        for (int u = 0; u < words.length; u++)
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) outWeight[u] += weights[e];
+        this.lexRank = lexRank;
+        this.lexOrder = new int[words.length];
+        for (int v = 0; v < words.length; v++) lexOrder[lexRank[v]] = v;
+    }
+
+    /** 由邻接表构建快照：先按字典序编号，再按 order 重新编号 */
+    static CompactGraph of(Map<String, Map<String, Integer>> graph, long version, NodeOrder order) {
+        String[] words = graph.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        Map<String, Integer> ids = new HashMap<>(words.length * 2);
+        for (int i = 0; i < words.length; i++) ids.put(words[i], i);
+
+        int m = 0;
+        for (Map<String, Integer> outs : graph.values()) m += outs.size();
+        int[] offsets = new int[words.length + 1];
+        int[] targets = new int[m], weights = new int[m];
+        int e = 0;
+        for (int u = 0; u < words.length; u++) {
+            offsets[u] = e;
+            for (Map.Entry<String, Integer> out : graph.get(words[u]).entrySet()) {
+                targets[e] = ids.get(out.getKey());
+                weights[e] = out.getValue();
+                e++;
+            }
+        }
+        offsets[words.length] = e;
+        return of(version, words, offsets, targets, weights, order);
+    }
+
+    /**
+     * 由按字典序编号的 CSR 数组构建快照（words 已按字典序排列，行内可以无序），再按 order 重新编号。
+     * 数组直接归快照所有，调用方不应再修改。
+     */
+    static CompactGraph of(long version, String[] words, int[] offsets, int[] targets, int[] weights,
+                           NodeOrder order) {
+        for (int u = 0; u < words.length; u++) sortRow(targets, weights, offsets[u], offsets[u + 1]);
+        if (order == NodeOrder.LEXICOGRAPHIC) {
+            int[] identity = new int[words.length];
+            for (int i = 0; i < identity.length; i++) identity[i] = i;
+            return new CompactGraph(version, words, offsets, targets, weights, identity);
+        }
+        int[] perm = order == NodeOrder.DEGREE
+                ? degreeOrder(offsets, targets)
+                : reverseCuthillMcKee(offsets, targets);
+        return relabel(version, words, offsets, targets, weights, perm);
+    }
+
+    /** 按新编号重排：perm[新编号] = 旧编号（旧编号即字典序名次） */
+    private static CompactGraph relabel(long version, String[] words, int[] offsets, int[] targets, int[] weights,
+                                        int[] perm) {
+        int n = words.length;
+        int[] inv = new int[n];
+        for (int i = 0; i < n; i++) inv[perm[i]] = i;
+        String[] newWords = new String[n];
+        int[] newOffsets = new int[n + 1], newTargets = new int[targets.length], newWeights = new int[weights.length];
+        int e = 0;
+        for (int v = 0; v < n; v++) {
+            int old = perm[v];
+            newWords[v] = words[old];
+            newOffsets[v] = e;
+            for (int f = offsets[old]; f < offsets[old + 1]; f++) {
+                newTargets[e] = inv[targets[f]];
+                newWeights[e] = weights[f];
+                e++;
+            }
+            sortRow(newTargets, newWeights, newOffsets[v], e);
+        }
+        newOffsets[n] = e;
+        return new CompactGraph(version, newWords, newOffsets, newTargets, newWeights, perm);
+    }
+
+    // 总度数降序，度数相同按原编号（字典序）
+    private static int[] degreeOrder(int[] offsets, int[] targets) {
+        int n = offsets.length - 1;
+        int[] degree = undirectedDegree(offsets, targets);
+        long[] keys = new long[n];
+        for (int u = 0; u < n; u++) keys[u] = ((long) (Integer.MAX_VALUE - degree[u]) << 32) | u;
+        Arrays.sort(keys);
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) perm[i] = (int) keys[i];
+        return perm;
+    }
+
+    /**
+     * Reverse Cuthill-McKee：在无向化的图上，从每个连通分量中度数最小的节点开始 BFS，
+     * 邻居按度数升序入队，最后把整个序列反转。度数相同时按原编号，结果确定。
+     */
+    private static int[] reverseCuthillMcKee(int[] offsets, int[] targets) {
+        int n = offsets.length - 1;
+        int[] degree = undirectedDegree(offsets, targets);
+        // 入边 CSR（计数排序），与出边一起构成无向邻接
+        int[] inOffsets = new int[n + 1], inSources = new int[targets.length];
+        for (int t : targets) inOffsets[t + 1]++;
+        for (int i = 0; i < n; i++) inOffsets[i + 1] += inOffsets[i];
+        int[] fill = Arrays.copyOf(inOffsets, n);
+        for (int u = 0; u < n; u++)
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) inSources[fill[targets[e]]++] = u;
+
+        long[] starts = new long[n];
+        for (int u = 0; u < n; u++) starts[u] = ((long) degree[u] << 32) | u;
+        Arrays.sort(starts);
+
+        boolean[] visited = new boolean[n];
+        int[] queue = new int[n];
+        long[] buf = new long[16];
+        int head = 0, tail = 0;
+        for (long start : starts) {
+            int s = (int) start;
+            if (visited[s]) continue;
+            visited[s] = true;
+            queue[tail++] = s;
+            while (head < tail) {
+                int u = queue[head++];
+                int cnt = 0;
+                int needed = offsets[u + 1] - offsets[u] + inOffsets[u + 1] - inOffsets[u];
+                if (buf.length < needed) buf = new long[Math.max(needed, buf.length * 2)];
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    int v = targets[e];
+                    if (!visited[v]) { visited[v] = true; buf[cnt++] = ((long) degree[v] << 32) | v; }
+                }
+                for (int e = inOffsets[u]; e < inOffsets[u + 1]; e++) {
+                    int v = inSources[e];
+                    if (!visited[v]) { visited[v] = true; buf[cnt++] = ((long) degree[v] << 32) | v; }
+                }
+                Arrays.sort(buf, 0, cnt);
+                for (int i = 0; i < cnt; i++) queue[tail++] = (int) buf[i];
+            }
+        }
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) perm[i] = queue[n - 1 - i];
+        return perm;
+    }
+
+    private static int[] undirectedDegree(int[] offsets, int[] targets) {
+        int n = offsets.length - 1;
+        int[] degree = new int[n];
+        for (int u = 0; u < n; u++) {
+            degree[u] += offsets[u + 1] - offsets[u];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) degree[targets[e]]++;
+        }
+        return degree;
+    }
+
+    // 行内按目标编号排序：短行插入排序，长行（高频词）打包成 long 后排序
+    private static void sortRow(int[] targets, int[] weights, int from, int to) {
+        if (to - from > 32) {
+            long[] packed = new long[to - from];
+            for (int i = from; i < to; i++) packed[i - from] = ((long) targets[i] << 32) | weights[i];
+            Arrays.sort(packed);
+            for (int i = from; i < to; i++) {
+                targets[i] = (int) (packed[i - from] >>> 32);
+                weights[i] = (int) packed[i - from];
+            }
+            return;
+        }
+        for (int i = from + 1; i < to; i++) {
+            int t = targets[i], w = weights[i], j = i - 1;
+            while (j >= from && targets[j] > t) {
+                targets[j + 1] = targets[j];
+                weights[j + 1] = weights[j];
+                j--;
+            }
+            targets[j + 1] = t;
+            weights[j + 1] = w;
+        }
+    }
+
+    int size() { return words.length; }
+
+    int edgeCount() { return targets.length; }
+
+    int outDegree(int u) { return offsets[u + 1] - offsets[u]; }
+
+    /** 单词对应的编号，不存在时返回 -1 */
+    int id(String word) {
+        Integer id = ids.get(word);
+        return id == null ? -1 : id;
+    }
+
+    /** u -> v 这条边的下标（行内按目标编号二分查找），不存在时返回 -1 */
+    int edge(int u, int v) {
+        int e = Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v);
+        return e < 0 ? -1 : e;
+    }
+
+    /**
+     * 全图 PageRank（d = 0.85，迭代 100 次，悬挂节点的 PR 均摊给所有节点），
+     * 与原先逐节点扫描入链的算法结果一致，但每轮只需按出边推送一次，按版本缓存。
+     */
+    synchronized double[] pageRank() {
+        if (pageRank != null) return pageRank;
+        final double d = 0.85;
+        int n = size();
+        double[] pr = new double[n], prNew = new double[n];
+        Arrays.fill(pr, 1.0 / n);
+        for (int iter = 0; iter < 100; iter++) {
+            double danglingSum = 0;
+            for (int u = 0; u < n; u++)
+                if (outDegree(u) == 0) danglingSum += pr[u];
+            Arrays.fill(prNew, (1 - d) / n + d * danglingSum / n);
+            for (int u = 0; u < n; u++) {
+                if (outDegree(u) == 0) continue;
+                double share = d * pr[u] / outWeight[u];
+                for (int e = offsets[u]; e < offsets[u + 1]; e++)
+                    prNew[targets[e]] += share * weights[e];
+            }
+            double[] tmp = pr; pr = prNew; prNew = tmp;
+        }
+        pageRank = pr;
+        return pr;
+    }
+
+    /** 已计算过的全图 PageRank，尚未计算时返回 null */
+    synchronized double[] cachedPageRank() {
+        return pageRank;
+    }
+
+    /** 出边权重的行内前缀和：第 e 条边处为 weights[offsets[u]..e] 之和，首次使用时构建 */
+    private synchronized int[] cumulativeWeights() {
+        if (cumulativeWeights != null) return cumulativeWeights;
+        int[] cum = new int[targets.length];
+        for (int u = 0; u < size(); u++) {
+            int acc = 0;
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) cum[e] = acc += weights[e];
+        }
+        cumulativeWeights = cum;
+        return cum;
+    }
+
+    /**
+     * 按权重随机选取 u 的一条出边（概率 = 边权 / 出边权重之和），返回边的下标，
+     * 没有出边时返回 -1。在前缀和上二分查找，O(log 出度)；随机游走与 Monte Carlo PPR 共用。
+     */
+    int sampleEdge(int u, RandomGenerator rnd) {
+        if (outWeight[u] == 0) return -1;
+        int[] cum = cumulativeWeights;
+        if (cum == null) cum = cumulativeWeights();
+        int r = rnd.nextInt(outWeight[u]);
+        int lo = offsets[u], hi = offsets[u + 1] - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cum[mid] > r) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,325 @@
+import java.io.*;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * CorpusLoader: 从目录（按 glob 过滤）批量加载语料并构建词图。
+ * 文件在并行流中按区间分给各工作任务，每个任务在自己的局部表里计数，任务之间两两合并局部表；
+ * 局部表超过 FLUSH_EDGES 条边时刷入全局计数表，以限制内存。全局计数表基于 ConcurrentHashMap
+ * （分段 CAS），多个任务可同时刷入而无需全局锁。
+ * 文件按路径排序，跨文件的那条边（上一个文件最后一个词 -> 下一个文件第一个词）是否连接由选项决定。
+ * .gz 文件边解压边切词；.zip 压缩包中的每个 .txt 条目各作为一个任务，通过 ZipFile 随机访问并行解压。
+ * 两者都不落临时文件，也不把解压后的内容整体读入内存。
+ * k 阶上下文模式（loadContexts）下所有文件按路径顺序依次送入同一个 HigherOrderGraph，不并行。
+ */
+final class CorpusLoader {
+    /** 进度回调：每完成一个文件调用一次，可能来自任意工作线程 */
+    interface Progress {
+        void update(int filesDone, int filesTotal, long bytesRead, double mbPerSec);
+    }
+
+    /** 一个输入单元：普通文件 / .gz 文件，或 .zip 中的一个条目 */
+    private static final class Source {
+        final Path file;
+        final String entry;   // 非 zip 条目时为 null
+
+        Source(Path file, String entry) {
+            this.file = file;
+            this.entry = entry;
+        }
+
+        @Override
+        public String toString() {
+            return entry == null ? file.toString() : file + "!" + entry;
+        }
+    }
+
+    /**
+     * 加载结果；files 为处理的输入单元数（zip 中的每个条目计一个），bytes 为解压后的字节数。
+     * 相邻词图在 graph 中，k 阶上下文图在 contexts 中，另一个为 null。
+     */
+    static final class Result {
+        final Map<String, Map<String, Integer>> graph;
+        final HigherOrderGraph contexts;
+        final int files;
+        final long bytes;
+        final long nanos;
+
+        Result(Map<String, Map<String, Integer>> graph, HigherOrderGraph contexts, int files, long bytes,
+               long nanos) {
+            this.graph = graph;
+            this.contexts = contexts;
+            this.files = files;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        double mbPerSec() {
+            return nanos == 0 ? 0 : bytes / 1e6 / (nanos / 1e9);
+        }
+    }
+
+    // 单个任务的局部边表达到这么多条不同的边时刷入全局表，限制每个任务占用的内存
+    private static final int FLUSH_EDGES = 1 << 21;
+    private static final int BUFFER_CHARS = 1 << 16;
+
+    private final Tokenizer tokenizer;
+    private final boolean linkAcrossFiles;
+
+    CorpusLoader(Tokenizer tokenizer, boolean linkAcrossFiles) {
+        this.tokenizer = tokenizer;
+        this.linkAcrossFiles = linkAcrossFiles;
+    }
+
+    /**
+     * 列出 dir 下匹配 glob 的普通文件，按路径排序。
+     * glob 不含 '/' 时只匹配文件名（如 "*.txt"），否则匹配相对于 dir 的路径（如 "2024/**.txt"）。
+     */
+    static List<Path> listFiles(Path dir, String glob) throws IOException {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        boolean byName = !glob.contains("/");
+        try (Stream<Path> walk = Files.walk(dir)) {
+            return walk.filter(Files::isRegularFile)
+                    .filter(p -> matcher.matches(byName ? p.getFileName() : dir.relativize(p)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /** 并行加载 files（可包含 .gz 与 .zip），返回合并后的词图 */
+    Result load(List<Path> paths, Progress progress) throws IOException {
+        Map<Path, ZipFile> zips = new HashMap<>();
+        try {
+            return load(expand(paths, zips), zips, progress);
+        } finally {
+            for (ZipFile z : zips.values()) z.close();
+        }
+    }
+
+    // 把 .zip 展开为其中的 .txt 条目（按条目名排序），其余文件原样保留
+    private static List<Source> expand(List<Path> paths, Map<Path, ZipFile> zips) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        for (Path p : paths) {
+            if (!isZip(p)) {
+                sources.add(new Source(p, null));
+                continue;
+            }
+            ZipFile zip = new ZipFile(p.toFile());
+            zips.put(p, zip);
+            List<String> names = new ArrayList<>();
+            for (Enumeration<? extends ZipEntry> en = zip.entries(); en.hasMoreElements(); ) {
+                ZipEntry e = en.nextElement();
+                if (!e.isDirectory() && e.getName().toLowerCase().endsWith(".txt")) names.add(e.getName());
+            }
+            Collections.sort(names);
+            for (String name : names) sources.add(new Source(p, name));
+        }
+        return sources;
+    }
+
+    private static boolean isZip(Path p) {
+        return p.getFileName().toString().toLowerCase().endsWith(".zip");
+    }
+
+    private static boolean isGzip(Path p) {
+        return p.getFileName().toString().toLowerCase().endsWith(".gz");
+    }
+
+    private Result load(List<Source> files, Map<Path, ZipFile> zips, Progress progress) throws IOException {
+        long start = System.nanoTime();
+        ConcurrentHashMap<String, Map<String, Integer>> graph = new ConcurrentHashMap<>();
+        Map<String, Map<String, Integer>> result = graph;
+        String[] firsts = new String[files.size()], lasts = new String[files.size()];
+        AtomicLong bytes = new AtomicLong();
+        AtomicInteger done = new AtomicInteger();
+        try {
+            // collect 的每个累加器对应一段连续的文件，合并时把后一个并入前一个
+            Accumulator root = IntStream.range(0, files.size()).parallel().collect(
+                    () -> new Accumulator(graph),
+                    (acc, i) -> {
+                        try (Reader in = open(files.get(i), zips, bytes)) {
+                            acc.beginFile();
+                            Tokenizer.Session s = tokenizer.newSession();
+                            for (int n; (n = in.read(acc.buf)) > 0; ) s.feed(acc.buf, 0, n, acc);
+                            s.finish(acc);
+                            firsts[i] = acc.first;
+                            lasts[i] = acc.last;
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(files.get(i) + ": " + ex.getMessage(), ex);
+                        }
+                        if (progress != null) {
+                            long elapsed = System.nanoTime() - start;
+                            progress.update(done.incrementAndGet(), files.size(), bytes.get(),
+                                    bytes.get() / 1e6 / Math.max(elapsed / 1e9, 1e-9));
+                        }
+                    },
+                    Accumulator::absorb);
+            // 从未溢出时直接使用根累加器的局部表，省去一次整体复制
+            if (graph.isEmpty()) result = root.local;
+            else root.flush();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        if (linkAcrossFiles) {
+            String prevLast = null;
+            for (int i = 0; i < files.size(); i++) {
+                if (firsts[i] == null) continue;
+                if (prevLast != null) GraphBuilder.addEdge(result, prevLast, firsts[i], 1);
+                prevLast = lasts[i];
+            }
+        }
+        return new Result(result, null, files.size(), bytes.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * 顺序加载 files（可包含 .gz 与 .zip）并构建 order 阶上下文图。
+     * 上下文的单词编号在整个语料中共享，因此文件逐个送入同一个 HigherOrderGraph；
+     * 不连接相邻文件时每个文件结束后调用 endDocument，否则上下文窗口跨文件延续。
+     * 不同单词数超过上限时抛出 IOException（在读完出现溢出的那个文件之后）。
+     */
+    Result loadContexts(List<Path> paths, int order, Progress progress) throws IOException {
+        long start = System.nanoTime();
+        Map<Path, ZipFile> zips = new HashMap<>();
+        HigherOrderGraph g = new HigherOrderGraph(order);
+        AtomicLong bytes = new AtomicLong();
+        char[] buf = new char[BUFFER_CHARS];
+        try {
+            List<Source> files = expand(paths, zips);
+            for (int i = 0; i < files.size(); i++) {
+                try (Reader in = open(files.get(i), zips, bytes)) {
+                    Tokenizer.Session s = tokenizer.newSession();
+                    for (int n; (n = in.read(buf)) > 0; ) s.feed(buf, 0, n, g);
+                    s.finish(g);
+                } catch (IOException ex) {
+                    throw new IOException(files.get(i) + ": " + ex.getMessage(), ex);
+                }
+                // 词表溢出后不必再读剩下的文件
+                g.checkVocabulary();
+                if (!linkAcrossFiles) g.endDocument();
+                if (progress != null) {
+                    long elapsed = System.nanoTime() - start;
+                    progress.update(i + 1, files.size(), bytes.get(),
+                            bytes.get() / 1e6 / Math.max(elapsed / 1e9, 1e-9));
+                }
+            }
+            return new Result(null, g, files.size(), bytes.get(), System.nanoTime() - start);
+        } finally {
+            for (ZipFile z : zips.values()) z.close();
+        }
+    }
+
+    // 以 UTF-8 流式读取（必要时边读边解压），非法字节替换为 U+FFFD 而不是抛异常；
+    // 解压后的字节数计入 counter
+    private static Reader open(Source src, Map<Path, ZipFile> zips, AtomicLong counter) throws IOException {
+        InputStream in;
+        if (src.entry != null) {
+            ZipFile zip = zips.get(src.file);
+            in = zip.getInputStream(zip.getEntry(src.entry));
+        } else if (isGzip(src.file)) {
+            in = new GZIPInputStream(Files.newInputStream(src.file), BUFFER_CHARS);
+        } else {
+            in = Files.newInputStream(src.file);
+        }
+        InputStream raw = new CountingInputStream(in, counter);
+        return new InputStreamReader(raw, StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+    }
+
+    /**
+     * 一个工作任务的局部计数，依次处理若干文件；first / last 记录当前文件的首尾单词，用于跨文件连边。
+     * 边只在同一文件内的相邻单词之间累加。
+     */
+    private static final class Accumulator implements Tokenizer.TokenSink {
+        private final ConcurrentHashMap<String, Map<String, Integer>> global;
+        private Map<String, Map<String, Integer>> local = new HashMap<>();
+        private int localEdges;
+        private final Tokenizer.Interner interner = new Tokenizer.Interner();
+        final char[] buf = new char[BUFFER_CHARS];
+        String first, last;
+
+        Accumulator(ConcurrentHashMap<String, Map<String, Integer>> global) {
+            this.global = global;
+        }
+
+        void beginFile() {
+            first = last = null;
+        }
+
+        @Override
+        public void token(char[] buf, int len) {
+            String w = interner.intern(buf, len);
+            if (last != null) {
+                if (local.computeIfAbsent(last, k -> new HashMap<>()).merge(w, 1, Integer::sum) == 1) localEdges++;
+                // 末端节点同样要出现在图中
+                local.computeIfAbsent(w, k -> new HashMap<>());
+                if (localEdges >= FLUSH_EDGES) flush();
+            } else {
+                first = w;
+            }
+            last = w;
+        }
+
+        /** 把 other 的局部计数并入本累加器（较小的表并入较大的表） */
+        void absorb(Accumulator other) {
+            Map<String, Map<String, Integer>> from = other.local;
+            if (from.size() > local.size()) {
+                from = local;
+                local = other.local;
+                localEdges = other.localEdges;
+            }
+            for (Map.Entry<String, Map<String, Integer>> e : from.entrySet()) {
+                Map<String, Integer> outs = local.computeIfAbsent(e.getKey(), k -> new HashMap<>());
+                for (Map.Entry<String, Integer> out : e.getValue().entrySet())
+                    if (outs.merge(out.getKey(), out.getValue(), Integer::sum).equals(out.getValue())) localEdges++;
+            }
+            other.local = new HashMap<>();
+            if (localEdges >= FLUSH_EDGES) flush();
+        }
+
+        void flush() {
+            for (Map.Entry<String, Map<String, Integer>> e : local.entrySet()) {
+                Map<String, Integer> outs = global.computeIfAbsent(e.getKey(), k -> new ConcurrentHashMap<>());
+                for (Map.Entry<String, Integer> out : e.getValue().entrySet())
+                    outs.merge(out.getKey(), out.getValue(), Integer::sum);
+            }
+            local = new HashMap<>();
+            localEdges = 0;
+        }
+    }
+
+    /** 统计读取字节数的输入流包装 */
+    static final class CountingInputStream extends FilterInputStream {
+        private final AtomicLong counter;
+
+        CountingInputStream(InputStream in, AtomicLong counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) counter.incrementAndGet();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) counter.addAndGet(n);
+            return n;
+        }
+    }
+}
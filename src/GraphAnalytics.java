@@ -0,0 +1,229 @@
+import java.util.*;
+
+/**
+ * GraphAnalytics: 某一图版本上的线性时间分析，构建一次后按版本缓存。
+ * 包括强连通分量（迭代式 Tarjan，深图不会栈溢出）、缩点 DAG 上的可达性索引、入度/出度分布。
+ *
+ * 可达性索引：Tarjan 先完成的分量编号更小，缩点 DAG 中的边总是从编号大的分量指向编号小的分量；
+ * 另外在 DAG 上做两次不同子节点顺序的后序遍历，为每个分量记录区间 [low, post]，
+ * 若 t 的区间不被 s 的区间包含则 s 一定不可达 t。绝大多数不可达查询在 O(1) 内被判定，
+ * 其余情况再做一次受这些条件剪枝的 DFS，结果是精确的。
+ */
+final class GraphAnalytics {
+    private static final int LABELS = 2;
+
+    final CompactGraph graph;
+    final int[] component;        // 节点 -> 分量编号
+    final int componentCount;
+    final int[] componentSize;
+    private final int[] dagOffsets, dagTargets;
+    private final int[][] low = new int[LABELS][], post = new int[LABELS][];
+
+    GraphAnalytics(CompactGraph g) {
+        this.graph = g;
+        int n = g.size();
+        component = new int[n];
+        componentCount = tarjan(g, component);
+        componentSize = new int[componentCount];
+        for (int c : component) componentSize[c]++;
+
+        // 缩点 DAG（去重、去自环）
+        int[] count = new int[componentCount + 1];
+        long[] edges = new long[g.edgeCount()];
+        int m = 0;
+        for (int u = 0; u < n; u++)
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++) {
+                int cu = component[u], cv = component[g.targets[e]];
+                if (cu != cv) edges[m++] = ((long) cu << 32) | cv;
+            }
+        Arrays.sort(edges, 0, m);
+        dagOffsets = new int[componentCount + 1];
+        int k = 0;
+        for (int i = 0; i < m; i++)
+            if (i == 0 || edges[i] != edges[i - 1]) edges[k++] = edges[i];
+        dagTargets = new int[k];
+        for (int i = 0; i < k; i++) {
+            dagTargets[i] = (int) edges[i];
+            count[(int) (edges[i] >>> 32) + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) dagOffsets[c + 1] = dagOffsets[c] + count[c + 1];
+
+        for (int l = 0; l < LABELS; l++) label(l);
+    }
+
+    /**
+     * 迭代式 Tarjan，返回分量个数。用显式栈保存 (节点, 下一条待处理的出边)，
+     * 递归深度不受线程栈限制。
+     */
+    private static int tarjan(CompactGraph g, int[] component) {
+        int n = g.size();
+        int[] index = new int[n], lowlink = new int[n];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[n];
+        int[] sccStack = new int[n], callStack = new int[n], nextEdge = new int[n];
+        int sccTop = 0, counter = 0, comps = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] != -1) continue;
+            int depth = 0;
+            callStack[0] = root;
+            nextEdge[0] = g.offsets[root];
+            index[root] = lowlink[root] = counter++;
+            sccStack[sccTop++] = root;
+            onStack[root] = true;
+            while (depth >= 0) {
+                int u = callStack[depth];
+                if (nextEdge[depth] < g.offsets[u + 1]) {
+                    int v = g.targets[nextEdge[depth]++];
+                    if (index[v] == -1) {
+                        index[v] = lowlink[v] = counter++;
+                        sccStack[sccTop++] = v;
+                        onStack[v] = true;
+                        callStack[++depth] = v;
+                        nextEdge[depth] = g.offsets[v];
+                    } else if (onStack[v]) {
+                        lowlink[u] = Math.min(lowlink[u], index[v]);
+                    }
+                    continue;
+                }
+                // u 的出边处理完毕：若是分量的根则出栈成一个分量，然后回到父节点
+                if (lowlink[u] == index[u]) {
+                    int v;
+                    do {
+                        v = sccStack[--sccTop];
+                        onStack[v] = false;
+                        component[v] = comps;
+                    } while (v != u);
+                    comps++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callStack[depth];
+                    lowlink[parent] = Math.min(lowlink[parent], lowlink[u]);
+                }
+            }
+        }
+        return comps;
+    }
+
+    // 第 l 次 DAG 后序遍历：l 为偶数时按正序访问子节点，为奇数时按逆序
+    private void label(int l) {
+        int c = componentCount;
+        int[] lo = new int[c], po = new int[c];
+        Arrays.fill(po, -1);
+        int[] stack = new int[c], next = new int[c];
+        boolean[] started = new boolean[c];
+        int rank = 0;
+        for (int r = c - 1; r >= 0; r--) {  // 编号大的更接近源头
+            if (started[r]) continue;
+            int depth = 0;
+            stack[0] = r;
+            next[0] = 0;
+            started[r] = true;
+            lo[r] = Integer.MAX_VALUE;
+            while (depth >= 0) {
+                int u = stack[depth];
+                int deg = dagOffsets[u + 1] - dagOffsets[u];
+                if (next[depth] < deg) {
+                    int i = next[depth]++;
+                    int v = dagTargets[(l & 1) == 0 ? dagOffsets[u] + i : dagOffsets[u + 1] - 1 - i];
+                    if (!started[v]) {
+                        started[v] = true;
+                        lo[v] = Integer.MAX_VALUE;
+                        stack[++depth] = v;
+                        next[depth] = 0;
+                    } else {
+                        lo[u] = Math.min(lo[u], lo[v]);
+                    }
+                    continue;
+                }
+                po[u] = rank++;
+                lo[u] = Math.min(lo[u], po[u]);
+                depth--;
+                if (depth >= 0) lo[stack[depth]] = Math.min(lo[stack[depth]], lo[u]);
+            }
+        }
+        low[l] = lo;
+        post[l] = po;
+    }
+
+    // 区间过滤：返回 false 表示 a 一定不可达 b
+    private boolean mayReach(int a, int b) {
+        if (a < b) return false;
+        for (int l = 0; l < LABELS; l++)
+            if (low[l][b] < low[l][a] || post[l][b] > post[l][a]) return false;
+        return true;
+    }
+
+    /** 节点 s 是否可达节点 t（精确） */
+    boolean reachable(int s, int t) {
+        int cs = component[s], ct = component[t];
+        if (cs == ct) return true;
+        if (!mayReach(cs, ct)) return false;
+        // 受区间条件剪枝的 DFS
+        BitSet seen = new BitSet();
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = cs;
+        seen.set(cs);
+        while (top > 0) {
+            int u = stack[--top];
+            for (int e = dagOffsets[u]; e < dagOffsets[u + 1]; e++) {
+                int v = dagTargets[e];
+                if (v == ct) return true;
+                if (seen.get(v) || !mayReach(v, ct)) continue;
+                seen.set(v);
+                if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+                stack[top++] = v;
+            }
+        }
+        return false;
+    }
+
+    /** 出度分布：度数 -> 节点数 */
+    SortedMap<Integer, Integer> outDegreeHistogram() {
+        SortedMap<Integer, Integer> h = new TreeMap<>();
+        for (int u = 0; u < graph.size(); u++) h.merge(graph.outDegree(u), 1, Integer::sum);
+        return h;
+    }
+
+    /** 入度分布：度数 -> 节点数 */
+    SortedMap<Integer, Integer> inDegreeHistogram() {
+        int[] in = new int[graph.size()];
+        for (int t : graph.targets) in[t]++;
+        SortedMap<Integer, Integer> h = new TreeMap<>();
+        for (int d : in) h.merge(d, 1, Integer::sum);
+        return h;
+    }
+
+    /** 分析摘要（度数分布按 2 的幂分桶） */
+    String summary() {
+        int largest = 0, singletons = 0;
+        for (int size : componentSize) {
+            largest = Math.max(largest, size);
+            if (size == 1) singletons++;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("节点数=").append(graph.size()).append("，边数=").append(graph.edgeCount()).append('\n');
+        sb.append("强连通分量数=").append(componentCount).append("，最大分量大小=").append(largest)
+                .append("，单节点分量数=").append(singletons).append("，缩点 DAG 边数=").append(dagTargets.length)
+                .append('\n');
+        appendHistogram(sb, "出度分布", outDegreeHistogram());
+        appendHistogram(sb, "入度分布", inDegreeHistogram());
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, String title, SortedMap<Integer, Integer> h) {
+        sb.append("== ").append(title).append(" ==\n");
+        SortedMap<Integer, Integer> buckets = new TreeMap<>();
+        for (Map.Entry<Integer, Integer> e : h.entrySet()) {
+            int d = e.getKey();
+            int bucket = d == 0 ? 0 : Integer.highestOneBit(d);
+            buckets.merge(bucket, e.getValue(), Integer::sum);
+        }
+        for (Map.Entry<Integer, Integer> e : buckets.entrySet()) {
+            int b = e.getKey();
+            String range = b <= 1 ? String.valueOf(b) : b + "-" + (2 * b - 1);
+            sb.append(String.format("%-12s %d%n", range, e.getValue()));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * GraphBuilder: 由文本并行构建词图（相邻单词连一条有向边，权重为出现次数）。
+ * 文本按空白字符切成若干段，每段在独立的 Tokenizer.Session 中切词并做局部计数，
+ * 最后按段的顺序合并，并补上相邻两段交界处的那条边，结果与整段顺序处理完全相同。
+ */
+final class GraphBuilder {
+    // 每段的最小长度（字符数）；短文本只有一段，不启用并行
+    private static final int MIN_CHUNK_CHARS = 1 << 20;
+
+    private GraphBuilder() {}
+
+    /** 一段文本的局部计数结果 */
+    static final class Segment implements Tokenizer.TokenSink {
+        final Map<String, Map<String, Integer>> edges = new HashMap<>();
+        private final Tokenizer.Interner interner = new Tokenizer.Interner();
+        String first, last;
+        long tokens;
+
+        @Override
+        public void token(char[] buf, int len) {
+            String w = interner.intern(buf, len);
+            if (last != null) addEdge(edges, last, w, 1);
+            else first = w;
+            last = w;
+            tokens++;
+        }
+    }
+
+    /** 在 graph 中累加一条边，两个端点都会成为节点 */
+    static void addEdge(Map<String, Map<String, Integer>> graph, String a, String b, int count) {
+        graph.computeIfAbsent(a, k -> new HashMap<>()).merge(b, count, Integer::sum);
+        graph.computeIfAbsent(b, k -> new HashMap<>());
+    }
+
+    /** 把 segment 的计数合并进 graph */
+    static void mergeInto(Map<String, Map<String, Integer>> graph, Segment seg) {
+        for (Map.Entry<String, Map<String, Integer>> e : seg.edges.entrySet()) {
+            Map<String, Integer> outs = graph.computeIfAbsent(e.getKey(), k -> new HashMap<>());
+            for (Map.Entry<String, Integer> out : e.getValue().entrySet()) {
+                outs.merge(out.getKey(), out.getValue(), Integer::sum);
+                graph.computeIfAbsent(out.getKey(), k -> new HashMap<>());
+            }
+        }
+    }
+
+    /** 构建整段文本的词图 */
+    static Map<String, Map<String, Integer>> build(String text, Tokenizer tokenizer) {
+        List<int[]> ranges = split(text);
+        List<Segment> segments = IntStream.range(0, ranges.size())
+                .parallel()
+                .mapToObj(i -> {
+                    Segment seg = new Segment();
+                    Tokenizer.Session s = tokenizer.newSession();
+                    s.feed(text.subSequence(ranges.get(i)[0], ranges.get(i)[1]), seg);
+                    s.finish(seg);
+                    return seg;
+                })
+                .collect(Collectors.toList());
+
+        Map<String, Map<String, Integer>> graph = segments.size() == 1 ? segments.getFirst().edges : new HashMap<>();
+        String prevLast = null;
+        for (Segment seg : segments) {
+            if (segments.size() > 1) mergeInto(graph, seg);
+            if (seg.tokens == 0) continue;
+            if (prevLast != null) addEdge(graph, prevLast, seg.first, 1);
+            prevLast = seg.last;
+        }
+        return graph;
+    }
+
+    // 按并行度切段，段数不超过可用线程数以免无谓的合并开销；
+    // 在空白字符处切开：空白在任何模式下都是分隔符，不会把一个单词切成两半
+    private static List<int[]> split(String text) {
+        List<int[]> ranges = new ArrayList<>();
+        int start = 0, n = text.length();
+        int parallelism = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+        int chunk = Math.max(MIN_CHUNK_CHARS, n / parallelism + 1);
+        while (start < n) {
+            int end = Math.min(n, start + chunk);
+            while (end < n && !Character.isWhitespace(text.charAt(end))) end++;
+            ranges.add(new int[]{start, end});
+            start = end;
+        }
+        if (ranges.isEmpty()) ranges.add(new int[]{0, 0});
+        return ranges;
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * GraphRankIndex: 针对某一图版本预先排好序的排行索引。
+ * 包括按 PageRank、按边权重、按出度三种排名，Top-K 与阈值区间查询
+ * 都只需切片或二分查找，无需再扫描整张图。
+ */
+final class GraphRankIndex {
+    /** 排行结果中的一项：标签（单词或 "a -> b"）及其分值；作为 TextGraph 公开方法的返回类型 */
+    public record RankEntry(String label, double value) {
+        @Override
+        public String toString() {
+            return value == Math.rint(value)
+                    ? label + " (" + (long) value + ")"
+                    : label + " (" + String.format("%.4f", value) + ")";
+        }
+    }
+
+    final CompactGraph graph;
+    private final Ranking byPageRank, byEdgeWeight, byOutDegree;
+    private final int[] edgeSource;
+
+    GraphRankIndex(CompactGraph g) {
+        this.graph = g;
+        int n = g.size(), m = g.edgeCount();
+        edgeSource = new int[m];
+        for (int u = 0; u < n; u++)
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++) edgeSource[e] = u;
+
+        double[] pr = g.pageRank();
+        Integer[] ids = new Integer[n];
+        for (int i = 0; i < n; i++) ids[i] = i;
+        Arrays.sort(ids, (a, b) -> {
+            int c = Double.compare(pr[b], pr[a]);
+            return c != 0 ? c : g.words[a].compareTo(g.words[b]);
+        });
+        int[] prOrder = new int[n];
+        double[] prValues = new double[n];
+        for (int i = 0; i < n; i++) {
+            prOrder[i] = ids[i];
+            prValues[i] = pr[ids[i]];
+        }
+        byPageRank = new Ranking(prOrder, prValues);
+
+        // 权重/出度为整数：把 (MAX - 值) 放在高 32 位、字典序位置放在低 32 位，直接对 long 排序，
+        // 使并列项的先后与节点编号方式无关
+        int[] lexEdges = new int[m];
+        int pos = 0;
+        for (int u : g.lexOrder) {
+            long[] row = new long[g.outDegree(u)];
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++)
+                row[e - g.offsets[u]] = ((long) g.lexRank[g.targets[e]] << 32) | e;
+            Arrays.sort(row);
+            for (long r : row) lexEdges[pos++] = (int) r;
+        }
+        long[] keys = new long[m];
+        for (int i = 0; i < m; i++) keys[i] = ((long) (Integer.MAX_VALUE - g.weights[lexEdges[i]]) << 32) | i;
+        byEdgeWeight = Ranking.fromKeys(keys, lexEdges);
+        keys = new long[n];
+        for (int u = 0; u < n; u++) keys[u] = ((long) (Integer.MAX_VALUE - g.outDegree(u)) << 32) | g.lexRank[u];
+        byOutDegree = Ranking.fromKeys(keys, g.lexOrder);
+    }
+
+    /** PageRank 最高的 k 个单词 */
+    List<RankEntry> topPageRank(int k) { return byPageRank.top(k, this::wordLabel); }
+
+    /** 权重最大的 k 条边 */
+    List<RankEntry> topEdges(int k) { return byEdgeWeight.top(k, this::edgeLabel); }
+
+    /** 出度最高的 k 个单词 */
+    List<RankEntry> topOutDegree(int k) { return byOutDegree.top(k, this::wordLabel); }
+
+    /** PageRank 不低于 min 的所有单词（降序） */
+    List<RankEntry> pageRankAtLeast(double min) { return byPageRank.atLeast(min, this::wordLabel); }
+
+    /** 权重不低于 min 的所有边（降序） */
+    List<RankEntry> edgesWithWeightAtLeast(int min) { return byEdgeWeight.atLeast(min, this::edgeLabel); }
+
+    /** 出度不低于 min 的所有单词（降序） */
+    List<RankEntry> outDegreeAtLeast(int min) { return byOutDegree.atLeast(min, this::wordLabel); }
+
+    /** 按 PageRank 降序排列的全部节点编号（共享内部数组，调用方不得修改） */
+    int[] pageRankOrder() { return byPageRank.order; }
+
+    private String wordLabel(int id) { return graph.words[id]; }
+
+    private String edgeLabel(int e) {
+        return graph.words[edgeSource[e]] + " -> " + graph.words[graph.targets[e]];
+    }
+
+    /** 一种排名：按分值降序排列的编号及对应分值 */
+    private static final class Ranking {
+        final int[] order;
+        final double[] values;
+
+        Ranking(int[] order, double[] values) {
+            this.order = order;
+            this.values = values;
+        }
+
+        // keys 低 32 位为 ids 中的下标
+        static Ranking fromKeys(long[] keys, int[] ids) {
+            Arrays.sort(keys);
+            int[] order = new int[keys.length];
+            double[] values = new double[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                order[i] = ids[(int) keys[i]];
+                values[i] = Integer.MAX_VALUE - (int) (keys[i] >>> 32);
+            }
+            return new Ranking(order, values);
+        }
+
+        List<RankEntry> top(int k, IntFunction<String> label) {
+            return slice(Math.max(0, Math.min(k, order.length)), label);
+        }
+
+        List<RankEntry> atLeast(double min, IntFunction<String> label) {
+            // values 降序：二分找到第一个 < min 的位置
+            int lo = 0, hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] >= min) lo = mid + 1;
+                else hi = mid;
+            }
+            return slice(lo, label);
+        }
+
+        private List<RankEntry> slice(int count, IntFunction<String> label) {
+            List<RankEntry> list = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) list.add(new RankEntry(label.apply(order[i]), values[i]));
+            return list;
+        }
+    }
+}
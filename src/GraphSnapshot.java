@@ -0,0 +1,408 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GraphSnapshot: 某次加载后的图的只读版本，用于保留历史并比较两次加载之间的差异。
+ * 节点按单词字典序排列，每个节点的出边也按目标单词字典序排列（与节点编号方式无关）。
+ *
+ * 多个版本之间共享结构：单词字符串来自同一个 {@link WordPool}；展开新版本时逐行与上一版本比较，
+ * 出边完全相同的行直接复用上一版本的 Row 对象。语料只有少量变化时，多保留一个版本只需
+ * 新的索引数组与变化的行，而不是整张图的一份拷贝；比较两版本时共享的行也可以 O(1) 跳过。
+ * 新版本起初只引用 TextGraph 已有的 CSR 快照，不另存一份；第一次比较、保存或恢复用到它时才展开，
+ * 展开前即使当前图已被替换也继续引用原来的 CSR 快照。
+ */
+final class GraphSnapshot {
+    private static final int MAGIC = 0x54475331;   // "TGS1"
+
+    /** 单词池：同一个单词在所有版本中只保留一个 String 实例；展开版本时可能来自查询线程，故加锁 */
+    static final class WordPool {
+        private final Map<String, String> pool = new HashMap<>();
+
+        synchronized String intern(String w) {
+            String s = pool.putIfAbsent(w, w);
+            return s != null ? s : w;
+        }
+
+        /**
+         * 只保留 snapshots 中仍在使用的单词（尚未展开的版本还没有放入池中）。
+         * 先逐个读取各版本的单词、再锁住池，不同时持有两把锁：materialize 在版本的锁内调用 intern，
+         * 反过来加锁会死锁。
+         */
+        void retain(Collection<GraphSnapshot> snapshots) {
+            Set<String> live = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (GraphSnapshot s : snapshots) {
+                String[] w = s.expandedWords();
+                if (w != null) live.addAll(Arrays.asList(w));
+            }
+            synchronized (this) {
+                pool.values().removeIf(w -> !live.contains(w));
+            }
+        }
+    }
+
+    /** 一个节点的出边：目标按字典序排列，不可变，可被多个版本共享 */
+    static final class Row {
+        static final Row EMPTY = new Row(new String[0], new int[0]);
+        final String[] targets;
+        final int[] weights;
+
+        Row(String[] targets, int[] weights) {
+            this.targets = targets;
+            this.weights = weights;
+        }
+
+        boolean sameAs(String[] t, int[] w) {
+            return Arrays.equals(targets, t) && Arrays.equals(weights, w);
+        }
+    }
+
+    /** 差异的接收者，按 (源单词, 目标单词) 的字典序依次收到回调 */
+    interface DiffSink {
+        default void addedWord(String word) {}
+        default void removedWord(String word) {}
+        default void addedEdge(String from, String to, int weight) {}
+        default void removedEdge(String from, String to, int weight) {}
+        default void changedEdge(String from, String to, int oldWeight, int newWeight) {}
+    }
+
+    /** 汇总差异：各类变化的计数、每类最多 limit 条明细、权重变化最大的 limit 条边 */
+    static final class DiffSummary implements DiffSink {
+        private final int limit;
+        int addedWords, removedWords, addedEdges, removedEdges, changedEdges;
+        final List<String> addedWordList = new ArrayList<>(), removedWordList = new ArrayList<>();
+        final List<String> addedEdgeList = new ArrayList<>(), removedEdgeList = new ArrayList<>();
+        // 按 |权重变化| 保留最大的 limit 条：{|Δ|, 序号}，序号小者（字典序靠前）优先
+        private final PriorityQueue<long[]> topChanged = new PriorityQueue<>(
+                (x, y) -> x[0] != y[0] ? Long.compare(x[0], y[0]) : Long.compare(y[1], x[1]));
+        private final Map<Long, String> changedText = new HashMap<>();
+
+        DiffSummary(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void addedWord(String word) {
+            if (addedWords++ < limit) addedWordList.add(word);
+        }
+
+        @Override
+        public void removedWord(String word) {
+            if (removedWords++ < limit) removedWordList.add(word);
+        }
+
+        @Override
+        public void addedEdge(String from, String to, int weight) {
+            if (addedEdges++ < limit) addedEdgeList.add(from + " -> " + to + " (" + weight + ")");
+        }
+
+        @Override
+        public void removedEdge(String from, String to, int weight) {
+            if (removedEdges++ < limit) removedEdgeList.add(from + " -> " + to + " (" + weight + ")");
+        }
+
+        @Override
+        public void changedEdge(String from, String to, int oldWeight, int newWeight) {
+            long seq = changedEdges++;
+            topChanged.add(new long[]{Math.abs((long) newWeight - oldWeight), seq});
+            changedText.put(seq, from + " -> " + to + " (" + oldWeight + " → " + newWeight + ")");
+            if (topChanged.size() > limit) changedText.remove(topChanged.poll()[1]);
+        }
+
+        /** 权重变化最大的边，按变化量降序 */
+        List<String> topChangedEdges() {
+            List<long[]> list = new ArrayList<>(topChanged);
+            list.sort((x, y) -> x[0] != y[0] ? Long.compare(y[0], x[0]) : Long.compare(x[1], y[1]));
+            List<String> out = new ArrayList<>();
+            for (long[] e : list) out.add(changedText.get(e[1]));
+            return out;
+        }
+    }
+
+    /** PageRank 变化量 */
+    record Mover(String word, double before, double after) {
+        double delta() {
+            return after - before;
+        }
+
+        // 排序用的变化量：当前版本的 PageRank 取自按 textgraph.nodeOrder 编号的 CSR，与按字典序计算的结果
+        // 只差舍入误差，低于 1e-12 的变化视为 0，使排序不受编号方式影响
+        double magnitude() {
+            double d = Math.abs(delta());
+            return d < 1e-12 ? 0 : d;
+        }
+    }
+
+    final long version;
+    final String label;
+    final long createdAt;
+    final int size;
+    final int edgeCount;
+    // 展开后的形式：字典序的单词与各行，以及复用自上一版本的行数
+    private String[] words;
+    private Row[] rows;
+    private int sharedRows;
+    // 尚未展开时：来源的 CSR 快照、上一版本与单词池，展开后置为 null
+    private CompactGraph source;
+    private GraphSnapshot previous;
+    private WordPool pool;
+    private double[] pageRank;
+
+    private GraphSnapshot(long version, String label, long createdAt, String[] words, Row[] rows, int sharedRows) {
+        this.version = version;
+        this.label = label;
+        this.createdAt = createdAt;
+        this.words = words;
+        this.rows = rows;
+        this.size = words.length;
+        int m = 0;
+        for (Row r : rows) m += r.targets.length;
+        this.edgeCount = m;
+        this.sharedRows = sharedRows;
+    }
+
+    private GraphSnapshot(CompactGraph source, String label, GraphSnapshot previous, WordPool pool) {
+        this.version = source.version;
+        this.label = label;
+        this.createdAt = System.currentTimeMillis();
+        this.size = source.size();
+        this.edgeCount = source.edgeCount();
+        this.source = source;
+        this.previous = previous;
+        this.pool = pool;
+    }
+
+    /**
+     * 记录 CSR 快照 g 对应的版本。此时只保存对 g 的引用（g 本来就是当前图，不额外占用内存），
+     * 第一次比较、保存或恢复时才展开为按字典序的行，并与 previous 共享未变化的行。
+     */
+    static GraphSnapshot of(CompactGraph g, String label, GraphSnapshot previous, WordPool pool) {
+        return new GraphSnapshot(g, label, previous, pool);
+    }
+
+    // 已展开时为字典序的单词，否则为 null
+    private synchronized String[] expandedWords() {
+        return words;
+    }
+
+    /** 不再与上一版本共享行：上一版本被移出历史时调用，使它可以被回收 */
+    synchronized void forgetPrevious() {
+        previous = null;
+    }
+
+    /** 复用自上一版本的行数；尚未展开时为 -1（versionList 不显示） */
+    synchronized int sharedRows() {
+        return source == null ? sharedRows : -1;
+    }
+
+    /** 展开为字典序的单词与各行（节点与出边按字典序从 CSR 读出），之后释放对 CSR 的引用 */
+    synchronized void materialize() {
+        if (source == null) return;
+        CompactGraph g = source;
+        int n = g.size();
+        String[] w = new String[n];
+        for (int r = 0; r < n; r++) w[r] = pool.intern(g.words[g.lexOrder[r]]);
+        Row[] out = new Row[n];
+        long[] row = new long[0];
+        for (int r = 0; r < n; r++) {
+            int u = g.lexOrder[r], cnt = g.outDegree(u);
+            // 出边按目标的字典序名次排列（lex 编号时行内已经有序）
+            if (row.length < cnt) row = new long[cnt];
+            for (int i = 0; i < cnt; i++) {
+                int e = g.offsets[u] + i;
+                row[i] = ((long) g.lexRank[g.targets[e]] << 32) | e;
+            }
+            Arrays.sort(row, 0, cnt);
+            String[] t = new String[cnt];
+            int[] wt = new int[cnt];
+            for (int i = 0; i < cnt; i++) {
+                t[i] = w[(int) (row[i] >>> 32)];
+                wt[i] = g.weights[(int) row[i]];
+            }
+            out[r] = cnt == 0 ? Row.EMPTY : new Row(t, wt);
+        }
+        sharedRows = shareRows(w, out, previous);
+        // CSR 上已经算过的 PageRank 按字典序保留下来
+        double[] pr = g.cachedPageRank();
+        if (pr != null && pageRank == null) pageRank = lexPageRank(g, pr);
+        words = w;
+        rows = out;
+        source = null;
+        previous = null;
+        pool = null;
+    }
+
+    // 把与上一版本同一单词完全相同的行替换为上一版本的 Row 对象（两个字典序数组同步前进），返回替换的行数
+    private static int shareRows(String[] words, Row[] rows, GraphSnapshot previous) {
+        if (previous == null) return 0;
+        previous.materialize();
+        String[] pw = previous.words;
+        int shared = 0, p = 0;
+        for (int u = 0; u < words.length; u++) {
+            while (p < pw.length && pw[p].compareTo(words[u]) < 0) p++;
+            if (p < pw.length && pw[p].equals(words[u])) {
+                Row old = previous.rows[p];
+                if (old.sameAs(rows[u].targets, rows[u].weights)) {
+                    rows[u] = old;
+                    shared++;
+                }
+            }
+        }
+        return shared;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** 由各行构建该版本的 CSR 快照（单词按字典序编号后再按 order 重新编号），version 为快照的图版本号 */
+    synchronized CompactGraph toCompact(long version, CompactGraph.NodeOrder order) {
+        materialize();
+        int[] offsets = new int[words.length + 1];
+        for (int u = 0; u < words.length; u++) offsets[u + 1] = offsets[u] + rows[u].targets.length;
+        int[] targets = new int[edgeCount], weights = new int[edgeCount];
+        for (int u = 0; u < words.length; u++) {
+            Row r = rows[u];
+            for (int k = 0; k < r.targets.length; k++) {
+                targets[offsets[u] + k] = Arrays.binarySearch(words, r.targets[k]);
+                weights[offsets[u] + k] = r.weights[k];
+            }
+        }
+        return CompactGraph.of(version, words, offsets, targets, weights, order);
+    }
+
+    /**
+     * 该版本的全图 PageRank，下标为单词的字典序名次；算法同 CompactGraph.pageRank。
+     * 尚未展开的版本直接取来源 CSR 上按版本缓存的结果，其余版本首次使用时在由各行构建的 CSR 上计算。
+     */
+    synchronized double[] pageRank() {
+        if (pageRank != null) return pageRank;
+        CompactGraph g = source != null ? source : toCompact(version, CompactGraph.NodeOrder.LEXICOGRAPHIC);
+        pageRank = lexPageRank(g, g.pageRank());
+        return pageRank;
+    }
+
+    // 把以 g 的编号为下标的 PageRank 改为以字典序名次为下标
+    private static double[] lexPageRank(CompactGraph g, double[] pr) {
+        double[] out = new double[pr.length];
+        for (int v = 0; v < pr.length; v++) out[g.lexRank[v]] = pr[v];
+        return out;
+    }
+
+    /**
+     * 流式比较 a（旧）与 b（新）：两边的单词与出边都按字典序归并，不构造中间集合；
+     * 两版本共享的行直接跳过。新增/删除的单词，其全部出边也作为新增/删除的边报告。
+     */
+    static void diff(GraphSnapshot a, GraphSnapshot b, DiffSink sink) {
+        a.materialize();
+        b.materialize();
+        int i = 0, j = 0;
+        while (i < a.words.length || j < b.words.length) {
+            int c = i == a.words.length ? 1 : j == b.words.length ? -1 : a.words[i].compareTo(b.words[j]);
+            if (c < 0) {
+                sink.removedWord(a.words[i]);
+                diffRows(a.words[i], a.rows[i++], Row.EMPTY, sink);
+            } else if (c > 0) {
+                sink.addedWord(b.words[j]);
+                diffRows(b.words[j], Row.EMPTY, b.rows[j++], sink);
+            } else {
+                if (a.rows[i] != b.rows[j]) diffRows(a.words[i], a.rows[i], b.rows[j], sink);
+                i++;
+                j++;
+            }
+        }
+    }
+
+    private static void diffRows(String from, Row x, Row y, DiffSink sink) {
+        int i = 0, j = 0;
+        while (i < x.targets.length || j < y.targets.length) {
+            int c = i == x.targets.length ? 1 : j == y.targets.length ? -1 : x.targets[i].compareTo(y.targets[j]);
+            if (c < 0) {
+                sink.removedEdge(from, x.targets[i], x.weights[i]);
+                i++;
+            } else if (c > 0) {
+                sink.addedEdge(from, y.targets[j], y.weights[j]);
+                j++;
+            } else {
+                if (x.weights[i] != y.weights[j]) sink.changedEdge(from, x.targets[i], x.weights[i], y.weights[j]);
+                i++;
+                j++;
+            }
+        }
+    }
+
+    /** PageRank 变化（按绝对值）最大的 k 个单词；只在一个版本中出现的单词，另一边按 0 计 */
+    static List<Mover> pageRankMovers(GraphSnapshot a, GraphSnapshot b, int k) {
+        double[] pa = a.pageRank(), pb = b.pageRank();
+        a.materialize();
+        b.materialize();
+        PriorityQueue<Mover> top = new PriorityQueue<>(
+                Comparator.comparingDouble(Mover::magnitude).thenComparing(Mover::word,
+                        Comparator.reverseOrder()));
+        int i = 0, j = 0;
+        while (i < a.words.length || j < b.words.length) {
+            int c = i == a.words.length ? 1 : j == b.words.length ? -1 : a.words[i].compareTo(b.words[j]);
+            Mover m = c < 0 ? new Mover(a.words[i], pa[i++], 0)
+                    : c > 0 ? new Mover(b.words[j], 0, pb[j++])
+                    : new Mover(a.words[i], pa[i++], pb[j++]);
+            top.add(m);
+            if (top.size() > k) top.poll();
+        }
+        List<Mover> out = new ArrayList<>(top);
+        out.sort(Comparator.comparingDouble((Mover m) -> -m.magnitude()).thenComparing(Mover::word));
+        return out;
+    }
+
+    /** 以 gzip 压缩的二进制格式写入文件：单词表 + 每行 (目标下标, 权重) */
+    void save(Path file) throws IOException {
+        materialize();
+        Map<String, Integer> index = new HashMap<>(words.length * 2);
+        for (int u = 0; u < words.length; u++) index.put(words[u], u);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file), 1 << 16)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(version);
+            out.writeUTF(label);
+            out.writeLong(createdAt);
+            out.writeInt(words.length);
+            for (String w : words) out.writeUTF(w);
+            for (Row r : rows) {
+                out.writeInt(r.targets.length);
+                for (int k = 0; k < r.targets.length; k++) {
+                    out.writeInt(index.get(r.targets[k]));
+                    out.writeInt(r.weights[k]);
+                }
+            }
+        }
+    }
+
+    /** 读取 save 写出的文件；previous 不为 null 时与之共享未变化的行 */
+    static GraphSnapshot load(Path file, GraphSnapshot previous, WordPool pool) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 1 << 16)))) {
+            if (in.readInt() != MAGIC) throw new IOException("不是图快照文件: " + file);
+            long version = in.readLong();
+            String label = in.readUTF();
+            long createdAt = in.readLong();
+            String[] words = new String[in.readInt()];
+            for (int u = 0; u < words.length; u++) words[u] = pool.intern(in.readUTF());
+            // save 按字典序写出单词与每行的目标，读入后直接就是展开的形式
+            Row[] rows = new Row[words.length];
+            for (int u = 0; u < words.length; u++) {
+                int deg = in.readInt();
+                String[] t = new String[deg];
+                int[] w = new int[deg];
+                for (int k = 0; k < deg; k++) {
+                    t[k] = words[in.readInt()];
+                    w[k] = in.readInt();
+                }
+                rows[u] = deg == 0 ? Row.EMPTY : new Row(t, w);
+            }
+            int shared = shareRows(words, rows, previous);
+            return new GraphSnapshot(version, label, createdAt, words, rows, shared);
+        }
+    }
+}
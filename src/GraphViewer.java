@@ -0,0 +1,720 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+
+/**
+ * GraphViewer: 大图的交互式浏览器，拖动平移、滚轮缩放，悬停显示单词与 PageRank。
+ * 布局不依赖 Graphviz：谱布局（见 Index.spectralLayout）把连接紧密的词放在一起，两个坐标按次序均匀化后铺满画面；
+ * 没有边的节点按 PageRank 排在 Vogel 螺旋上。每轮迭代 O(n + m)，十万级节点约一两秒。
+ *
+ * 画面由 TILE × TILE 像素的瓦片拼成，第 L 层的瓦片覆盖世界宽度的 1/2^L；只请求可见的瓦片，由后台线程按需渲染，
+ * 渲染好的瓦片按 LRU 缓存 MAX_TILES 个。尚未渲染好时先放大显示上层瓦片的对应部分，绘制一帧只是若干次贴图。
+ *
+ * 细节层次（见 {@link Index}）：第 L 层把世界划分为约 CELL 像素见方的四叉树格子，每格只显示 PageRank 最高的
+ * NODES_PER_CELL 个节点；每个显示的节点只画指向其他显示节点的、权重最大的 EDGES_PER_NODE 条边。
+ * 缩小时低 PR 的节点与低权重的边随之隐藏，每块瓦片的绘制量与图的总规模无关。
+ */
+@SuppressWarnings("serial")  // 只在本进程中显示，不做序列化
+final class GraphViewer extends JComponent {
+    static final int TILE = 256;
+    /** 最深的瓦片层级 */
+    static final int MAX_LEVEL = 16;
+    // 细节层次格子为 TILE >> CELL_SHIFT 像素见方
+    private static final int CELL_SHIFT = 2;
+    static final int NODES_PER_CELL = 2;
+    static final int EDGES_PER_NODE = 4;
+    // 四叉树叶子最多容纳的节点数
+    private static final int LEAF = 8;
+    // 缓存的瓦片数（每块 256 KB）
+    private static final int MAX_TILES = 256;
+    // 节点标签可能伸出的像素数：查询节点时外扩这么多，跨瓦片的圆与标签在相邻瓦片中画得一致
+    private static final int LABEL_MARGIN = 96;
+    // 线宽与箭头伸出线段的像素数
+    private static final int EDGE_MARGIN = 4;
+    private static final double MIN_SCALE = 64;
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final Color NODE_FILL = new Color(70, 130, 180);
+    private static final Color NODE_BORDER = new Color(40, 70, 110);
+
+    private final Index index;
+    private final ExecutorService workers;
+    // 以下字段只在事件派发线程中访问
+    private final Map<Long, BufferedImage> tiles = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            return size() > MAX_TILES;
+        }
+    };
+    private final Set<Long> pending = new HashSet<>();
+    private double scale, originX, originY;   // 每世界单位的像素数；屏幕左上角的世界坐标
+    private int dragX, dragY;
+    private long lastFrameNanos;
+    // 当前视野，供后台线程丢弃已移出视野的瓦片请求
+    private volatile int viewLevel;
+    private volatile double viewX0, viewY0, viewX1, viewY1;
+
+    GraphViewer(Index index) {
+        this.index = index;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), r -> {
+            Thread t = new Thread(r, "graph-viewer-tile");
+            t.setDaemon(true);
+            return t;
+        });
+        setPreferredSize(new Dimension(900, 700));
+        setOpaque(true);
+        ToolTipManager.sharedInstance().registerComponent(this);
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragX = e.getX();
+                dragY = e.getY();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                originX -= (e.getX() - dragX) / scale;
+                originY -= (e.getY() - dragY) / scale;
+                dragX = e.getX();
+                dragY = e.getY();
+                repaint();
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                // 以鼠标所在点为中心缩放
+                double s = Math.max(MIN_SCALE, Math.min((double) TILE * (1 << MAX_LEVEL),
+                        scale * Math.pow(1.25, -e.getPreciseWheelRotation())));
+                double wx = originX + e.getX() / scale, wy = originY + e.getY() / scale;
+                scale = s;
+                originX = wx - e.getX() / s;
+                originY = wy - e.getY() / s;
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /** 停止后台渲染线程；窗口关闭时调用 */
+    void close() {
+        workers.shutdownNow();
+    }
+
+    // 显示比例对应的瓦片层级：瓦片的显示尺寸保持在 TILE 的 0.7 ~ 1.4 倍之间
+    private static int levelFor(double scale) {
+        int l = (int) Math.round(Math.log(scale / TILE) / Math.log(2));
+        return Math.max(0, Math.min(MAX_LEVEL, l));
+    }
+
+    private static long tileKey(int l, int tx, int ty) {
+        return (long) l << 58 | (long) tx << 29 | ty;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        long t0 = System.nanoTime();
+        Graphics2D g2 = (Graphics2D) g.create();
+        int w = getWidth(), h = getHeight();
+        g2.setColor(BACKGROUND);
+        g2.fillRect(0, 0, w, h);
+        if (scale == 0) {
+            // 首次显示时让整个图充满窗口
+            scale = Math.max(MIN_SCALE, Math.min(w, h) * 0.95);
+            originX = 0.5 - w / 2.0 / scale;
+            originY = 0.5 - h / 2.0 / scale;
+        }
+        int l = levelFor(scale), side = 1 << l;
+        viewLevel = l;
+        viewX0 = originX;
+        viewY0 = originY;
+        viewX1 = originX + w / scale;
+        viewY1 = originY + h / scale;
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        int tx0 = Math.max(0, (int) Math.floor(viewX0 * side)), tx1 = Math.min(side - 1, (int) Math.floor(viewX1 * side));
+        int ty0 = Math.max(0, (int) Math.floor(viewY0 * side)), ty1 = Math.min(side - 1, (int) Math.floor(viewY1 * side));
+        for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                int sx = (int) Math.floor(((double) tx / side - originX) * scale);
+                int sy = (int) Math.floor(((double) ty / side - originY) * scale);
+                int ex = (int) Math.floor(((double) (tx + 1) / side - originX) * scale);
+                int ey = (int) Math.floor(((double) (ty + 1) / side - originY) * scale);
+                BufferedImage img = tiles.get(tileKey(l, tx, ty));
+                if (img != null) {
+                    g2.drawImage(img, sx, sy, ex - sx, ey - sy, null);
+                } else {
+                    request(l, tx, ty);
+                    drawFallback(g2, l, tx, ty, sx, sy, ex, ey);
+                }
+            }
+        }
+        g2.setColor(Color.GRAY);
+        g2.drawString(String.format("层级 %d  节点 %d  缓存瓦片 %d  待渲染 %d  上一帧 %.1f ms",
+                l, index.n, tiles.size(), pending.size(), lastFrameNanos / 1e6), 8, h - 8);
+        g2.dispose();
+        lastFrameNanos = System.nanoTime() - t0;
+    }
+
+    // 用已缓存的上层瓦片放大代替尚未渲染好的瓦片，最多向上找 4 层
+    private void drawFallback(Graphics2D g2, int l, int tx, int ty, int sx, int sy, int ex, int ey) {
+        for (int up = 1; up <= Math.min(l, 4); up++) {
+            BufferedImage parent = tiles.get(tileKey(l - up, tx >> up, ty >> up));
+            if (parent == null) continue;
+            int part = TILE >> up;
+            int px = (tx - (tx >> up << up)) * part, py = (ty - (ty >> up << up)) * part;
+            g2.drawImage(parent, sx, sy, ex, ey, px, py, px + part, py + part, null);
+            return;
+        }
+    }
+
+    private void request(int l, int tx, int ty) {
+        long key = tileKey(l, tx, ty);
+        if (!pending.add(key)) return;
+        workers.execute(() -> {
+            BufferedImage img = wanted(l, tx, ty) ? index.renderTile(l, tx, ty) : null;
+            SwingUtilities.invokeLater(() -> {
+                pending.remove(key);
+                if (img != null) {
+                    tiles.put(key, img);
+                    repaint();
+                }
+            });
+        });
+    }
+
+    // 瓦片是否仍在当前视野内；平移、缩放后不再可见的请求直接丢弃
+    private boolean wanted(int l, int tx, int ty) {
+        double side = 1 << l;
+        return l == viewLevel && (tx + 1) / side > viewX0 && tx / side < viewX1
+                && (ty + 1) / side > viewY0 && ty / side < viewY1;
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        if (scale == 0) return null;
+        int r = index.nearest(levelFor(scale), originX + e.getX() / scale, originY + e.getY() / scale, 8 / scale);
+        if (r < 0) return null;
+        return String.format("%s（PageRank %.6f，出度 %d）", index.word(r), index.pageRank(r),
+                index.graph.outDegree(index.byRank[r]));
+    }
+
+    /**
+     * 布局与空间索引，与界面无关，可在后台线程中构建。
+     * 节点以 PageRank 名次编号（名次 0 为 PR 最高），坐标位于单位正方形 [0, 1) 内（见 spectralLayout）。
+     * 节点四叉树按坐标递归四分，每个子树的节点在 items 中连续；内部格子记录子树中名次最小的 NODES_PER_CELL 个节点，
+     * 叶子内按名次排序，细节层次查询因此只需访问与视野相交、且不深于当层格子尺寸的部分。
+     * 每层的边按外接矩形落入的最小对齐格子（Morton 序）排序，瓦片只需检查祖先格子中的长边和自身格子范围内的边。
+     */
+    static final class Index {
+        // 格子键的位数（MAX_LEVEL 层的 Morton 码 + 5 位深度），按 RADIX_BITS 位一趟做基数排序
+        private static final int KEY_BITS = 2 * MAX_LEVEL + 5;
+        private static final int RADIX_BITS = 13;
+        private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+        // 谱布局的幂迭代轮数（话题合成语料上 50 轮后同话题词的平均距离已基本不变）
+        private static final int LAYOUT_ITERATIONS = 60;
+        private static final int EDGE_SHADES = 8;
+
+        final CompactGraph graph;
+        final int n;
+        final int[] byRank;            // 名次 -> 节点编号
+        private final int[] rankOf;    // 节点编号 -> 名次
+        private final float[] x, y;    // 名次 -> 坐标
+        private final float[] radius;  // 名次 -> 节点半径（像素）
+        private final double[] pr;
+        private final int[] items;     // 名次，按四叉树顺序排列
+        private int[] qFrom, qTo, qChild, qTop;
+        private int qCount;
+        // 已建好的层可以不加锁读取；每一层各用一把锁构建，建一层深的边表时不阻塞读取其他层的瓦片线程
+        private final AtomicReferenceArray<Level> levels = new AtomicReferenceArray<>(MAX_LEVEL + 1);
+        private final Object[] levelLocks = new Object[MAX_LEVEL + 1];
+        private final Color[] edgeColors = new Color[EDGE_SHADES];
+
+        /** 某一层显示的边：边 i 从名次 from[i] 指向 to[i]；order 为按格子键升序排列的边下标，keys[j] 为 order[j] 的格子键 */
+        private static final class Level {
+            final int visibleNodes;
+            final int[] from, to, weight;
+            final long[] keys;
+            final int[] order;
+            final int maxWeight;
+
+            Level(int visibleNodes, int[] from, int[] to, int[] weight, long[] keys, int[] order, int maxWeight) {
+                this.visibleNodes = visibleNodes;
+                this.from = from;
+                this.to = to;
+                this.weight = weight;
+                this.keys = keys;
+                this.order = order;
+                this.maxWeight = maxWeight;
+            }
+        }
+
+        private interface EdgeVisitor {
+            /** mayCross 为 true 时边不一定经过瓦片，需自行判断 */
+            void visit(int edge, boolean mayCross);
+        }
+
+        Index(GraphRankIndex ranks) {
+            this.graph = ranks.graph;
+            this.n = graph.size();
+            this.byRank = ranks.pageRankOrder();
+            this.rankOf = new int[n];
+            for (int r = 0; r < n; r++) rankOf[byRank[r]] = r;
+            double[] pageRank = graph.pageRank();
+            this.pr = new double[n];
+            this.x = new float[n];
+            this.y = new float[n];
+            this.radius = new float[n];
+            double maxPr = n == 0 ? 1 : Math.max(pageRank[byRank[0]], Double.MIN_VALUE);
+            for (int r = 0; r < n; r++) {
+                pr[r] = pageRank[byRank[r]];
+                double rho = 0.48 * Math.sqrt((r + 0.5) / n), theta = r * GOLDEN_ANGLE;
+                x[r] = (float) (0.5 + rho * Math.cos(theta));
+                y[r] = (float) (0.5 + rho * Math.sin(theta));
+                radius[r] = (float) (2 + 6 * Math.sqrt(pr[r] / maxPr));
+            }
+            spectralLayout();
+            for (int l = 0; l <= MAX_LEVEL; l++) levelLocks[l] = new Object();
+            for (int i = 0; i < EDGE_SHADES; i++)
+                edgeColors[i] = new Color(80, 80, 80, 50 + 200 * i / (EDGE_SHADES - 1));
+
+            items = new int[n];
+            for (int r = 0; r < n; r++) items[r] = r;
+            int cap = Math.max(16, n / LEAF * 2);
+            qFrom = new int[cap];
+            qTo = new int[cap];
+            qChild = new int[cap];
+            qTop = new int[cap * NODES_PER_CELL];
+            build(allocate(1), 0, n, 0, 0, 1, 0, new int[n]);
+        }
+
+        /**
+         * 谱布局：取无向、按 log(1 + 权重) 加权的邻接矩阵经对称归一化后（惰性随机游走）的第 2、3 个特征向量作为坐标，
+         * 连接紧密的一组词（同一话题、固定搭配）落在相近的位置。特征向量由子空间幂迭代求得，从螺旋坐标出发，
+         * 每轮 O(n + m)；随后两个坐标各自按名次均匀化到 [0.02, 0.98]，节点铺满画面而不挤成一团。结果确定。
+         * 没有边的节点保留螺旋上的位置。
+         */
+        private void spectralLayout() {
+            int[] deg = new int[n];
+            int m = 0;
+            for (int u = 0; u < n; u++)
+                for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++)
+                    if (graph.targets[e] != u) {
+                        deg[rankOf[u]]++;
+                        deg[rankOf[graph.targets[e]]]++;
+                        m++;
+                    }
+            // 无向邻接（名次编号）：每条有向边在两端各存一次
+            int[] start = new int[n + 1];
+            for (int r = 0; r < n; r++) start[r + 1] = start[r] + deg[r];
+            int[] adj = new int[2 * m], fill = Arrays.copyOf(start, n);
+            float[] w = new float[2 * m];
+            double[] d = new double[n];
+            for (int u = 0; u < n; u++) {
+                for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                    int a = rankOf[u], b = rankOf[graph.targets[e]];
+                    if (a == b) continue;
+                    float we = (float) Math.log1p(graph.weights[e]);
+                    adj[fill[a]] = b;
+                    w[fill[a]++] = we;
+                    adj[fill[b]] = a;
+                    w[fill[b]++] = we;
+                    d[a] += we;
+                    d[b] += we;
+                }
+            }
+            int connected = 0;
+            double[] sqrtD = new double[n];
+            for (int r = 0; r < n; r++)
+                if (d[r] > 0) {
+                    sqrtD[r] = Math.sqrt(d[r]);
+                    connected++;
+                }
+            if (connected < 3) return;
+            // 平凡特征向量 ∝ sqrt(d)，迭代中始终与之正交
+            double norm0 = 0;
+            for (double v : d) norm0 += v;
+            norm0 = Math.sqrt(norm0);
+            double[][] vec = new double[2][n];
+            for (int r = 0; r < n; r++)
+                if (d[r] > 0) {
+                    vec[0][r] = x[r] - 0.5;
+                    vec[1][r] = y[r] - 0.5;
+                }
+            double[] next = new double[n];
+            for (int iter = 0; iter < LAYOUT_ITERATIONS; iter++) {
+                for (int k = 0; k < 2; k++) {
+                    double[] v = vec[k];
+                    // next = ½ (v + D^-½ A D^-½ v)
+                    for (int r = 0; r < n; r++) {
+                        if (d[r] == 0) continue;
+                        double s = 0;
+                        for (int i = start[r]; i < start[r + 1]; i++) s += w[i] * v[adj[i]] / sqrtD[adj[i]];
+                        next[r] = 0.5 * (v[r] + s / sqrtD[r]);
+                    }
+                    System.arraycopy(next, 0, v, 0, n);
+                }
+                // Gram-Schmidt：去掉平凡方向，第二个向量再去掉第一个的方向，然后归一化
+                for (int k = 0; k < 2; k++) {
+                    double[] v = vec[k];
+                    orthogonalize(v, sqrtD, norm0);
+                    if (k == 1) orthogonalize(v, vec[0], 1);
+                    double len = 0;
+                    for (double t : v) len += t * t;
+                    len = Math.sqrt(len);
+                    if (len > 0) for (int r = 0; r < n; r++) v[r] /= len;
+                }
+            }
+            // 随机游走特征向量 D^-½ v，再按名次均匀化
+            for (int k = 0; k < 2; k++) {
+                double[] v = vec[k];
+                for (int r = 0; r < n; r++) if (d[r] > 0) v[r] /= sqrtD[r];
+                equalize(v, d, connected, k == 0 ? x : y);
+            }
+        }
+
+        // v -= (v·u / norm²) u
+        private static void orthogonalize(double[] v, double[] u, double norm) {
+            double dot = 0;
+            for (int r = 0; r < v.length; r++) dot += v[r] * u[r];
+            dot /= norm * norm;
+            for (int r = 0; r < v.length; r++) v[r] -= dot * u[r];
+        }
+
+        // 把有边节点的坐标 v 换成其次序在 [0.02, 0.98] 中的均匀位置，写入 out；数值相同时名次小者在前
+        private static void equalize(double[] v, double[] d, int connected, float[] out) {
+            // 高 32 位为按数值有序的 float 位模式（负数翻转低 31 位），低 32 位为名次
+            long[] keys = new long[connected];
+            int k = 0;
+            for (int r = 0; r < v.length; r++) {
+                if (d[r] == 0) continue;
+                int bits = Float.floatToIntBits((float) v[r]);
+                keys[k++] = (long) (bits >= 0 ? bits : bits ^ 0x7FFFFFFF) << 32 | r;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < connected; i++) out[(int) keys[i]] = (float) (0.02 + 0.96 * (i + 0.5) / connected);
+        }
+
+        String word(int r) {
+            return graph.words[byRank[r]];
+        }
+
+        double pageRank(int r) {
+            return pr[r];
+        }
+
+        // 分配 count 个连续的格子，返回第一个的下标
+        private int allocate(int count) {
+            if (qCount + count > qFrom.length) {
+                int cap = Math.max(qFrom.length * 2, qCount + count);
+                qFrom = Arrays.copyOf(qFrom, cap);
+                qTo = Arrays.copyOf(qTo, cap);
+                qChild = Arrays.copyOf(qChild, cap);
+                qTop = Arrays.copyOf(qTop, cap * NODES_PER_CELL);
+            }
+            int first = qCount;
+            qCount += count;
+            return first;
+        }
+
+        private int quadrant(int r, double mx, double my) {
+            return (x[r] >= mx ? 1 : 0) | (y[r] >= my ? 2 : 0);
+        }
+
+        private void build(int q, int from, int to, double x0, double y0, double size, int depth, int[] scratch) {
+            qFrom[q] = from;
+            qTo[q] = to;
+            qChild[q] = -1;
+            Arrays.fill(qTop, q * NODES_PER_CELL, (q + 1) * NODES_PER_CELL, -1);
+            if (to - from <= LEAF || depth == MAX_LEVEL + CELL_SHIFT) {
+                Arrays.sort(items, from, to);
+                return;
+            }
+            // 按象限计数排序，四个子树在 items 中依次相连
+            double half = size / 2, mx = x0 + half, my = y0 + half;
+            int[] start = new int[5];
+            for (int i = from; i < to; i++) start[quadrant(items[i], mx, my) + 1]++;
+            for (int c = 0; c < 4; c++) start[c + 1] += start[c];
+            int[] pos = Arrays.copyOf(start, 4);
+            for (int i = from; i < to; i++) scratch[from + pos[quadrant(items[i], mx, my)]++] = items[i];
+            System.arraycopy(scratch, from, items, from, to - from);
+            int first = allocate(4);
+            qChild[q] = first;
+            for (int c = 0; c < 4; c++)
+                build(first + c, from + start[c], from + start[c + 1], x0 + (c & 1) * half, y0 + (c >> 1) * half,
+                        half, depth + 1, scratch);
+            // 子树中名次最小的 NODES_PER_CELL 个节点
+            int[] cand = new int[4 * NODES_PER_CELL];
+            int k = 0;
+            for (int c = first; c < first + 4; c++) {
+                if (qChild[c] < 0) {
+                    for (int i = qFrom[c]; i < qTo[c] && i < qFrom[c] + NODES_PER_CELL; i++) cand[k++] = items[i];
+                } else {
+                    for (int j = 0; j < NODES_PER_CELL; j++)
+                        if (qTop[c * NODES_PER_CELL + j] >= 0) cand[k++] = qTop[c * NODES_PER_CELL + j];
+                }
+            }
+            Arrays.sort(cand, 0, k);
+            for (int j = 0; j < NODES_PER_CELL && j < k; j++) qTop[q * NODES_PER_CELL + j] = cand[j];
+        }
+
+        /** 第 l 层显示、且位于矩形 [x0, x1] × [y0, y1] 内的节点名次 */
+        void query(int l, double x0, double y0, double x1, double y1, IntConsumer out) {
+            if (n > 0) visit(0, 0, 0, 1, 0, l + CELL_SHIFT, x0, y0, x1, y1, out);
+        }
+
+        private void visit(int q, double cx, double cy, double size, int depth, int cut,
+                           double x0, double y0, double x1, double y1, IntConsumer out) {
+            if (cx > x1 || cy > y1 || cx + size < x0 || cy + size < y0) return;
+            if (qChild[q] < 0) {
+                // 叶子比当层格子大时，按它相当于多少个格子放宽数量
+                int shift = 2 * (cut - depth);
+                int limit = shift >= 28 ? Integer.MAX_VALUE : NODES_PER_CELL << shift;
+                for (int i = qFrom[q]; i < qTo[q] && i - qFrom[q] < limit; i++) emit(items[i], x0, y0, x1, y1, out);
+                return;
+            }
+            if (depth == cut) {
+                for (int j = 0; j < NODES_PER_CELL; j++) {
+                    int r = qTop[q * NODES_PER_CELL + j];
+                    if (r >= 0) emit(r, x0, y0, x1, y1, out);
+                }
+                return;
+            }
+            double half = size / 2;
+            for (int c = 0; c < 4; c++)
+                visit(qChild[q] + c, cx + (c & 1) * half, cy + (c >> 1) * half, half, depth + 1, cut,
+                        x0, y0, x1, y1, out);
+        }
+
+        private void emit(int r, double x0, double y0, double x1, double y1, IntConsumer out) {
+            if (x[r] >= x0 && x[r] <= x1 && y[r] >= y0 && y[r] <= y1) out.accept(r);
+        }
+
+        /** 第 l 层显示的节点中距 (wx, wy) 最近且不超过 maxDist 的一个，没有时返回 -1 */
+        int nearest(int l, double wx, double wy, double maxDist) {
+            int[] best = {-1};
+            double[] bestDist = {maxDist * maxDist};
+            query(l, wx - maxDist, wy - maxDist, wx + maxDist, wy + maxDist, r -> {
+                double dx = x[r] - wx, dy = y[r] - wy, d = dx * dx + dy * dy;
+                if (d <= bestDist[0]) {
+                    bestDist[0] = d;
+                    best[0] = r;
+                }
+            });
+            return best[0];
+        }
+
+        /** 第 l 层的边表，首次用到时构建 */
+        Level level(int l) {
+            Level level = levels.get(l);
+            if (level != null) return level;
+            synchronized (levelLocks[l]) {
+                level = levels.get(l);
+                if (level == null) {
+                    level = buildLevel(l);
+                    levels.set(l, level);
+                }
+                return level;
+            }
+        }
+
+        private Level buildLevel(int l) {
+            // 所有节点都已显示后，更深的层与上一层相同
+            Level above = l > 0 ? levels.get(l - 1) : null;
+            if (above != null && above.visibleNodes == n) return above;
+            BitSet visible = new BitSet(n);
+            query(l, 0, 0, 1, 1, visible::set);
+            int count = visible.cardinality();
+            // 每个显示的节点至多 EDGES_PER_NODE 条边；只受数组长度上限约束
+            int cap = (int) Math.min(Integer.MAX_VALUE - 8, (long) count * EDGES_PER_NODE);
+            int[] from = new int[cap], to = new int[cap], weight = new int[cap];
+            int m = 0, maxWeight = 1;
+            int[] top = new int[EDGES_PER_NODE];
+            for (int r = visible.nextSetBit(0); r >= 0 && m < cap; r = visible.nextSetBit(r + 1)) {
+                // 插入法选出指向其他显示节点的、权重最大的边，权重相同时目标名次小者优先
+                int u = byRank[r], size = 0;
+                for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                    int t = rankOf[graph.targets[e]];
+                    if (t == r || !visible.get(t)) continue;
+                    if (size == top.length && !heavier(e, top[size - 1])) continue;
+                    int i = size < top.length ? size++ : size - 1;
+                    while (i > 0 && heavier(e, top[i - 1])) {
+                        top[i] = top[i - 1];
+                        i--;
+                    }
+                    top[i] = e;
+                }
+                for (int j = 0; j < size && m < cap; j++, m++) {
+                    from[m] = r;
+                    to[m] = rankOf[graph.targets[top[j]]];
+                    weight[m] = graph.weights[top[j]];
+                    maxWeight = Math.max(maxWeight, weight[m]);
+                }
+            }
+            // 按实际保留的边数截短，缓存的每一层只占用它需要的内存
+            from = Arrays.copyOf(from, m);
+            to = Arrays.copyOf(to, m);
+            weight = Arrays.copyOf(weight, m);
+            long[] keys = new long[m];
+            for (int i = 0; i < m; i++) keys[i] = cellKey(x[from[i]], y[from[i]], x[to[i]], y[to[i]]);
+            int[] order = sortedOrder(keys);
+            long[] sortedKeys = new long[m];
+            for (int j = 0; j < m; j++) sortedKeys[j] = keys[order[j]];
+            return new Level(count, from, to, weight, sortedKeys, order, maxWeight);
+        }
+
+        // 按 keys 升序排列的下标（LSD 基数排序，稳定：键相同时下标小者在前）；keys 小于 2^KEY_BITS
+        private static int[] sortedOrder(long[] keys) {
+            int m = keys.length;
+            int[] order = new int[m], tmp = new int[m];
+            for (int i = 0; i < m; i++) order[i] = i;
+            int mask = (1 << RADIX_BITS) - 1;
+            for (int shift = 0; shift < KEY_BITS; shift += RADIX_BITS) {
+                int[] start = new int[mask + 2];
+                for (int i = 0; i < m; i++) start[(int) (keys[i] >>> shift & mask) + 1]++;
+                for (int d = 0; d <= mask; d++) start[d + 1] += start[d];
+                for (int i = 0; i < m; i++) tmp[start[(int) (keys[order[i]] >>> shift & mask)]++] = order[i];
+                int[] t = order;
+                order = tmp;
+                tmp = t;
+            }
+            return order;
+        }
+
+        private boolean heavier(int a, int b) {
+            if (graph.weights[a] != graph.weights[b]) return graph.weights[a] > graph.weights[b];
+            return rankOf[graph.targets[a]] < rankOf[graph.targets[b]];
+        }
+
+        // 完全包含线段外接矩形的最小对齐格子：(补齐到 MAX_LEVEL 的 Morton 码 << 5) | 格子深度
+        private static long cellKey(float ax, float ay, float bx, float by) {
+            int x0 = cell(Math.min(ax, bx)), x1 = cell(Math.max(ax, bx));
+            int y0 = cell(Math.min(ay, by)), y1 = cell(Math.max(ay, by));
+            int shift = 32 - Integer.numberOfLeadingZeros((x0 ^ x1) | (y0 ^ y1));
+            return morton(x0 >> shift << shift, y0 >> shift << shift) << 5 | (MAX_LEVEL - shift);
+        }
+
+        private static int cell(float v) {
+            return Math.max(0, Math.min((1 << MAX_LEVEL) - 1, (int) (v * (1 << MAX_LEVEL))));
+        }
+
+        private static long morton(int x, int y) {
+            return spread(x) | spread(y) << 1;
+        }
+
+        private static long spread(int v) {
+            long s = v & 0xFFFFFFFFL;
+            s = (s | s << 16) & 0x0000FFFF0000FFFFL;
+            s = (s | s << 8) & 0x00FF00FF00FF00FFL;
+            s = (s | s << 4) & 0x0F0F0F0F0F0F0F0FL;
+            s = (s | s << 2) & 0x3333333333333333L;
+            s = (s | s << 1) & 0x5555555555555555L;
+            return s;
+        }
+
+        // 第一个格子键不小于 key 的位置
+        private static int lowerBound(long[] keys, long key) {
+            int lo = 0, hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < key) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        /**
+         * 第 l 层瓦片 (tx, ty) 可能涉及的边。边按外接矩形存放在对齐格子中，格子之间要么嵌套要么不相交，
+         * 因此与瓦片相交的边只可能在瓦片的祖先格子或瓦片自身范围内的格子中；后者的边必在瓦片内。
+         * 线宽与箭头会伸出线段几个像素，故相邻 8 块瓦片的祖先与子格子中的边也交给调用方按外扩的边界判断。
+         */
+        private void edges(Level lv, int l, int tx, int ty, EdgeVisitor v) {
+            long[] keys = lv.keys;
+            int side = 1 << l, sh = MAX_LEVEL - l;
+            Set<Long> ancestors = new HashSet<>();
+            for (int ny = ty - 1; ny <= ty + 1; ny++) {
+                for (int nx = tx - 1; nx <= tx + 1; nx++) {
+                    if (nx < 0 || ny < 0 || nx >= side || ny >= side) continue;
+                    int cx = nx << sh, cy = ny << sh;
+                    for (int d = 0; d < l; d++) {
+                        int s = MAX_LEVEL - d;
+                        ancestors.add(morton(cx >> s << s, cy >> s << s) << 5 | d);
+                    }
+                    boolean own = nx == tx && ny == ty;
+                    long lo = morton(cx, cy) << 5, hi = lo + (1L << (2 * sh + 5));
+                    for (int i = lowerBound(keys, lo); i < keys.length && keys[i] < hi; i++)
+                        if ((keys[i] & 31) >= l) v.visit(lv.order[i], !own);
+                }
+            }
+            for (long key : ancestors)
+                for (int i = lowerBound(keys, key); i < keys.length && keys[i] == key; i++)
+                    v.visit(lv.order[i], true);
+        }
+
+        /** 渲染第 l 层的瓦片 (tx, ty)：先画边（权重越大颜色越深），再画节点与标签 */
+        BufferedImage renderTile(int l, int tx, int ty) {
+            Level lv = level(l);
+            int side = 1 << l;
+            double scale = (double) TILE * side, ox = (double) tx / side, oy = (double) ty / side;
+            BufferedImage img = new BufferedImage(TILE, TILE, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2 = img.createGraphics();
+            g2.setColor(BACKGROUND);
+            g2.fillRect(0, 0, TILE, TILE);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+            Rectangle2D bounds = new Rectangle2D.Double(-EDGE_MARGIN, -EDGE_MARGIN, TILE + 2 * EDGE_MARGIN, TILE + 2 * EDGE_MARGIN);
+            Line2D.Double line = new Line2D.Double();
+            double logMax = Math.log1p(lv.maxWeight);
+            edges(lv, l, tx, ty, (i, mayCross) -> {
+                int a = lv.from[i], b = lv.to[i];
+                line.setLine((x[a] - ox) * scale, (y[a] - oy) * scale, (x[b] - ox) * scale, (y[b] - oy) * scale);
+                if (mayCross && !bounds.intersectsLine(line)) return;
+                g2.setColor(edgeColors[(int) ((EDGE_SHADES - 1) * Math.log1p(lv.weight[i]) / logMax)]);
+                g2.draw(line);
+                arrowHead(g2, line, radius[b]);
+            });
+
+            double m = LABEL_MARGIN / scale, size = 1.0 / side;
+            g2.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 11));
+            Ellipse2D.Double dot = new Ellipse2D.Double();
+            query(l, ox - m, oy - m, ox + size + m, oy + size + m, r -> {
+                double px = (x[r] - ox) * scale, py = (y[r] - oy) * scale, rad = radius[r];
+                dot.setFrame(px - rad, py - rad, 2 * rad, 2 * rad);
+                g2.setColor(NODE_FILL);
+                g2.fill(dot);
+                g2.setColor(NODE_BORDER);
+                g2.draw(dot);
+                g2.setColor(Color.DARK_GRAY);
+                g2.drawString(word(r), (float) (px + rad + 2), (float) (py + 4));
+            });
+            g2.dispose();
+            return img;
+        }
+
+        // 在线段末端（目标节点圆周外）画箭头；线段太短时不画
+        private static void arrowHead(Graphics2D g2, Line2D.Double line, double targetRadius) {
+            double dx = line.x2 - line.x1, dy = line.y2 - line.y1, len = Math.hypot(dx, dy);
+            if (len < 3 * targetRadius + 12) return;
+            double ux = dx / len, uy = dy / len;
+            double tipX = line.x2 - ux * targetRadius, tipY = line.y2 - uy * targetRadius;
+            Path2D.Double head = new Path2D.Double();
+            head.moveTo(tipX, tipY);
+            head.lineTo(tipX - ux * 7 - uy * 3, tipY - uy * 7 + ux * 3);
+            head.lineTo(tipX - ux * 7 + uy * 3, tipY - uy * 7 - ux * 3);
+            head.closePath();
+            g2.fill(head);
+        }
+    }
+}
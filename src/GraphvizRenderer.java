@@ -0,0 +1,174 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * GraphvizRenderer: 调用 Graphviz 把 DOT 渲染为 PNG / SVG。
+ * 可执行文件由系统属性 textgraph.dot 指定（可执行文件或其所在目录），未指定时在 PATH 中查找 dot；
+ * DOT 写入进程的标准输入，图像从标准输出读回，不产生临时文件，多个实例同时运行互不干扰。
+ * 每次渲染有超时（textgraph.dot.timeout，秒），超时即强制结束进程；
+ * 节点或边较多时自动改用 sfdp 布局（-Ksfdp），dot 的分层布局在大图上往往要跑几十分钟。
+ * 完成的渲染按（图版本、布局引擎、格式）缓存最近 CACHE_SIZE 个，图未变化时不重复渲染。
+ */
+final class GraphvizRenderer {
+    /** 超过该节点数或 SFDP_EDGES 条边时改用 sfdp 布局 */
+    static final int SFDP_NODES = 500;
+    static final int SFDP_EDGES = 2000;
+    // 缓存的渲染结果个数
+    private static final int CACHE_SIZE = 8;
+    // 旧版本写死的 Windows 安装位置，PATH 中找不到时仍然尝试
+    private static final String[] WINDOWS_DIRS = {
+            "C:\\Program Files\\Graphviz\\bin", "C:\\Program Files (x86)\\Graphviz2.38\\bin"
+    };
+
+    enum Format {
+        PNG("png"), SVG("svg");
+
+        final String flag;
+
+        Format(String flag) {
+            this.flag = flag;
+        }
+    }
+
+    /** 一次渲染的结果；cached 为 true 表示直接取自缓存 */
+    static final class Render {
+        final byte[] data;
+        final Format format;
+        final String layout;
+        final long nanos;
+        final boolean cached;
+
+        Render(byte[] data, Format format, String layout, long nanos, boolean cached) {
+            this.data = data;
+            this.format = format;
+            this.layout = layout;
+            this.nanos = nanos;
+            this.cached = cached;
+        }
+    }
+
+    private record Key(long version, String layout, Format format) {}
+
+    final Path executable;
+    final long timeoutSeconds;
+    private final Map<Key, Render> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Render> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    GraphvizRenderer(Path executable, long timeoutSeconds) {
+        this.executable = executable;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /** 按系统属性 textgraph.dot / textgraph.dot.timeout（默认 60 秒）创建；找不到 dot 时抛出 IOException */
+    static GraphvizRenderer fromConfig() throws IOException {
+        String t = System.getProperty("textgraph.dot.timeout", "60").trim();
+        long timeout;
+        try {
+            timeout = Long.parseLong(t);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("textgraph.dot.timeout 必须是正整数（秒）: " + t);
+        }
+        if (timeout <= 0) throw new IllegalArgumentException("textgraph.dot.timeout 必须是正整数（秒）: " + t);
+        return new GraphvizRenderer(locate(), timeout);
+    }
+
+    // 查找顺序：textgraph.dot -> PATH -> Windows 默认安装目录
+    private static Path locate() throws IOException {
+        boolean windows = System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+        String name = windows ? "dot.exe" : "dot";
+        String configured = System.getProperty("textgraph.dot");
+        if (configured != null && !configured.trim().isEmpty()) {
+            Path p = Paths.get(configured.trim());
+            if (Files.isDirectory(p)) p = p.resolve(name);
+            if (Files.isExecutable(p)) return p;
+            throw new IOException("textgraph.dot 指向的文件不存在或不可执行: " + p);
+        }
+        List<String> dirs = new ArrayList<>();
+        String path = System.getenv("PATH");
+        if (path != null) dirs.addAll(Arrays.asList(path.split(File.pathSeparator)));
+        if (windows) dirs.addAll(Arrays.asList(WINDOWS_DIRS));
+        for (String dir : dirs) {
+            if (dir.isEmpty()) continue;
+            Path p = Paths.get(dir, name);
+            if (Files.isExecutable(p)) return p;
+        }
+        throw new IOException("找不到 Graphviz 的 dot，请把它加入 PATH，或用 -Dtextgraph.dot=路径 指定");
+    }
+
+    /** 按图的规模选择布局引擎 */
+    static String layoutFor(int nodes, int edges) {
+        return nodes > SFDP_NODES || edges > SFDP_EDGES ? "sfdp" : "dot";
+    }
+
+    /**
+     * 渲染版本号为 version 的图；同一版本、布局与格式已渲染过时直接返回缓存结果，
+     * 否则才调用 dot 获取 DOT 文本并启动进程。
+     */
+    Render render(long version, int nodes, int edges, Supplier<String> dot, Format format) throws IOException {
+        String layout = layoutFor(nodes, edges);
+        Key key = new Key(version, layout, format);
+        synchronized (cache) {
+            Render hit = cache.get(key);
+            if (hit != null) return new Render(hit.data, format, layout, 0, true);
+        }
+        long t0 = System.nanoTime();
+        byte[] data = run(dot.get(), layout, format);
+        Render r = new Render(data, format, layout, System.nanoTime() - t0, false);
+        synchronized (cache) {
+            cache.put(key, r);
+        }
+        return r;
+    }
+
+    /**
+     * 启动 Graphviz 并在超时内完成渲染：标准输入、标准输出、标准错误各由一个线程处理，
+     * 避免一端的管道写满后互相等待。
+     */
+    byte[] run(String dot, String layout, Format format) throws IOException {
+        Process p = new ProcessBuilder(executable.toString(), "-K" + layout, "-T" + format.flag).start();
+        ExecutorService io = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "graphviz-io");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            io.submit(() -> {
+                try (OutputStream in = p.getOutputStream()) {
+                    in.write(dot.getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+            Future<byte[]> out = io.submit(() -> p.getInputStream().readAllBytes());
+            Future<byte[]> err = io.submit(() -> p.getErrorStream().readAllBytes());
+            if (!p.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                p.destroyForcibly();
+                throw new IOException("Graphviz 渲染超过 " + timeoutSeconds + " 秒，已终止（布局引擎 " + layout + "）");
+            }
+            byte[] data = out.get(timeoutSeconds, TimeUnit.SECONDS);
+            if (p.exitValue() != 0) {
+                String msg = new String(err.get(timeoutSeconds, TimeUnit.SECONDS), StandardCharsets.UTF_8).trim();
+                throw new IOException("Graphviz 退出码 " + p.exitValue() + (msg.isEmpty() ? "" : ": " + msg));
+            }
+            return data;
+        } catch (InterruptedException ex) {
+            p.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("渲染被中断");
+        } catch (ExecutionException | TimeoutException ex) {
+            p.destroyForcibly();
+            throw new IOException("读取 Graphviz 输出失败: " + ex, ex);
+        } finally {
+            io.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * HigherOrderGraph: k 阶上下文图（textgraph.ngram=k）。节点是连续 k 个单词组成的上下文，
+ * 上下文 (w1..wk) 到 (w2..wk+1) 连一条边，权重为出现次数。上下文只在有边进出时才成为节点，
+ * 因此 k = 1 时与普通的相邻词图（GraphBuilder / CorpusLoader.load）完全相同：只有一个单词的文档不产生节点。
+ *
+ * 构建时单词先映射为整数编号，k 个编号按位打包进一个 long（每个编号占 63 / k 位），
+ * 上下文表与边表都是以 long 为键的开放寻址表，构建过程中不拼接字符串。
+ * 因此不同单词数有上限（k ≤ 2 时 2^31，k = 3 时 2^21 = 2097152）；超过时 build 抛出 IOException，
+ * 当前图保持不变。
+ * 构建完成后由 toCompact 直接从两张表生成 CSR 快照，上下文标签（以空格连接的 k 个单词）只在这时
+ * 为每个上下文创建一次，已有的分析功能可直接在快照上运行。
+ * 目录与压缩文件由 CorpusLoader 逐个文件送入同一个实例，文件之间用 endDocument 断开。
+ */
+final class HigherOrderGraph implements Tokenizer.TokenSink {
+    /** 支持的最大阶数：k = 3 时每个单词编号占 21 位；k = 4 只剩 15 位（32768 个单词），实际语料很容易超出 */
+    static final int MAX_ORDER = 3;
+
+    final int order;
+    private final int bits;
+    private final long mask;
+    private int[] wordTable = new int[1024];                // 单词散列表，存放单词编号，-1 为空
+    private final List<String> words = new ArrayList<>();   // 单词编号 -> 单词
+    private final LongIntMap contexts = new LongIntMap();   // 打包的上下文 -> 上下文编号
+    private long[] contextKeys = new long[1024];            // 上下文编号 -> 打包的上下文
+    private int contextCount;
+    private final LongIntMap edges = new LongIntMap();      // (源编号 << 32 | 目标编号) -> 次数
+    private long window;
+    private int filled;
+    private long prevWindow;
+    private boolean hasPrev;        // 当前文档中已有一个完整的上下文 prevWindow
+    private int prevContext = -1;   // prevWindow 的上下文编号，尚未登记时为 -1
+    private boolean overflow;   // 词表超过 2^bits，之后的单词不再处理
+    long tokens;
+
+    HigherOrderGraph(int order) {
+        if (order < 1 || order > MAX_ORDER)
+            throw new IllegalArgumentException("textgraph.ngram 必须在 1 到 " + MAX_ORDER + " 之间: " + order);
+        this.order = order;
+        this.bits = Math.min(31, 63 / order);
+        this.mask = (1L << (order * bits)) - 1;   // order * bits ≤ 63
+        Arrays.fill(wordTable, -1);
+    }
+
+    /** 由系统属性 textgraph.ngram 读取阶数，默认 1（普通词图） */
+    static int orderFromConfig() {
+        String v = System.getProperty("textgraph.ngram", "1").trim();
+        try {
+            int k = Integer.parseInt(v);
+            if (k >= 1 && k <= MAX_ORDER) return k;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("textgraph.ngram 必须是 1 到 " + MAX_ORDER + " 之间的整数: " + v);
+    }
+
+    /** 构建整段文本的 k 阶上下文图；不同单词数超过 maxVocabulary() 时抛出 IOException */
+    static HigherOrderGraph build(String text, Tokenizer tokenizer, int order) throws IOException {
+        HigherOrderGraph g = new HigherOrderGraph(order);
+        Tokenizer.Session s = tokenizer.newSession();
+        s.feed(text, g);
+        s.finish(g);
+        g.checkVocabulary();
+        return g;
+    }
+
+    /** 可容纳的不同单词数：2^min(31, 63 / k) */
+    long maxVocabulary() {
+        return 1L << bits;
+    }
+
+    /** 输入结束后调用：构建过程中词表超出上限时抛出 IOException */
+    void checkVocabulary() throws IOException {
+        if (overflow)
+            throw new IOException("不同单词超过 " + maxVocabulary() + " 个，无法构建 " + order + " 阶上下文图");
+    }
+
+    @Override
+    public void token(char[] buf, int len) {
+        if (overflow) return;
+        tokens++;
+        int id = wordId(buf, len);
+        if (id < 0) {
+            overflow = true;
+            return;
+        }
+        window = ((window << bits) | id) & mask;
+        if (filled < order && ++filled < order) return;
+        if (hasPrev) {
+            int from = prevContext >= 0 ? prevContext : context(prevWindow);
+            int to = context(window);
+            edges.add(((long) from << 32) | to, 1);
+            prevContext = to;
+        }
+        prevWindow = window;
+        hasPrev = true;
+    }
+
+    // 打包的上下文 -> 上下文编号，第一次出现时登记
+    private int context(long key) {
+        int ctx = contexts.putIfAbsent(key, contextCount);
+        if (ctx == contextCount) {
+            if (ctx == contextKeys.length) contextKeys = Arrays.copyOf(contextKeys, ctx * 2);
+            contextKeys[contextCount++] = key;
+        }
+        return ctx;
+    }
+
+    /** 结束当前文档：下一个单词开始新的上下文，不与之前的单词相连 */
+    void endDocument() {
+        window = 0;
+        filled = 0;
+        hasPrev = false;
+        prevContext = -1;
+    }
+
+    // 字符片段 -> 单词编号，只在单词第一次出现时分配字符串（同 Tokenizer.Interner，但直接给出编号）；
+    // 词表已满且是新单词时返回 -1
+    private int wordId(char[] buf, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++) h = 31 * h + buf[i];
+        int mask = wordTable.length - 1;
+        int i = h & mask;
+        for (int id; (id = wordTable[i]) >= 0; i = (i + 1) & mask)
+            if (matches(words.get(id), buf, len)) return id;
+        if (words.size() >= maxVocabulary()) return -1;
+        int id = words.size();
+        words.add(new String(buf, 0, len));
+        wordTable[i] = id;
+        if (words.size() * 2 > wordTable.length) rehashWords();
+        return id;
+    }
+
+    private static boolean matches(String s, char[] buf, int len) {
+        if (s.length() != len) return false;
+        for (int i = 0; i < len; i++)
+            if (s.charAt(i) != buf[i]) return false;
+        return true;
+    }
+
+    private void rehashWords() {
+        wordTable = new int[wordTable.length * 2];
+        Arrays.fill(wordTable, -1);
+        int mask = wordTable.length - 1;
+        for (int id = 0; id < words.size(); id++) {
+            int i = words.get(id).hashCode() & mask;
+            while (wordTable[i] >= 0) i = (i + 1) & mask;
+            wordTable[i] = id;
+        }
+    }
+
+    int contextCount() {
+        return contextCount;
+    }
+
+    int edgeCount() {
+        return edges.size();
+    }
+
+    /** 上下文的标签：k 个单词以空格连接 */
+    String label(int ctx) {
+        long key = contextKeys[ctx];
+        String[] parts = new String[order];
+        for (int i = order - 1; i >= 0; i--, key >>>= bits) parts[i] = words.get((int) (key & ((1L << bits) - 1)));
+        return String.join(" ", parts);
+    }
+
+    /**
+     * 生成 CSR 快照：上下文按标签的字典序编号，再按 nodeOrder 重新编号。
+     * 单词不含空格且空格小于任何字母，所以标签的字典序就是逐个单词比较的顺序：把打包键中的
+     * 单词编号换成单词的字典序名次后，直接按 long 排序即可，不需要比较字符串。
+     */
+    CompactGraph toCompact(long version, CompactGraph.NodeOrder nodeOrder) {
+        Integer[] byWord = new Integer[words.size()];
+        for (int i = 0; i < byWord.length; i++) byWord[i] = i;
+        Arrays.sort(byWord, Comparator.comparing(words::get));
+        long[] wordRank = new long[byWord.length];
+        for (int r = 0; r < byWord.length; r++) wordRank[byWord[r]] = r;
+
+        long wordMask = (1L << bits) - 1;
+        long[] lexKeys = new long[contextCount];
+        for (int c = 0; c < contextCount; c++) {
+            long key = contextKeys[c], lex = 0;
+            for (int i = 0; i < order; i++, key >>>= bits) lex |= wordRank[(int) (key & wordMask)] << (i * bits);
+            lexKeys[c] = lex;
+        }
+        long[] sorted = lexKeys.clone();
+        Arrays.sort(sorted);
+        int[] rank = new int[contextCount];
+        String[] labels = new String[contextCount];
+        for (int c = 0; c < contextCount; c++) {
+            rank[c] = Arrays.binarySearch(sorted, lexKeys[c]);
+            labels[rank[c]] = label(c);
+        }
+
+        int[] offsets = new int[contextCount + 1];
+        edges.forEach((key, count) -> offsets[rank[(int) (key >>> 32)] + 1]++);
+        for (int u = 0; u < contextCount; u++) offsets[u + 1] += offsets[u];
+        int[] fill = Arrays.copyOf(offsets, contextCount);
+        int[] targets = new int[edges.size()], weights = new int[edges.size()];
+        edges.forEach((key, count) -> {
+            int e = fill[rank[(int) (key >>> 32)]]++;
+            targets[e] = rank[(int) key];
+            weights[e] = count;
+        });
+        return CompactGraph.of(version, labels, offsets, targets, weights, nodeOrder);
+    }
+
+    /** 上下文表与边表占用的数组字节数（不含词表字符串） */
+    long tableBytes() {
+        return contexts.bytes() + edges.bytes() + 8L * contextKeys.length;
+    }
+
+    /** long -> int 的开放寻址表（线性探测），不装箱 */
+    static final class LongIntMap {
+        private static final long EMPTY = Long.MIN_VALUE;
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntMap() {
+            keys = new long[1024];
+            Arrays.fill(keys, EMPTY);
+            values = new int[1024];
+        }
+
+        interface Visitor {
+            void visit(long key, int value);
+        }
+
+        int size() {
+            return size;
+        }
+
+        /** 键不存在时写入 value 并返回它，否则返回已有的值 */
+        int putIfAbsent(long key, int value) {
+            int i = slot(key);
+            if (keys[i] != EMPTY) return values[i];
+            keys[i] = key;
+            values[i] = value;
+            if (++size * 2 > keys.length) rehash();
+            return value;
+        }
+
+        void add(long key, int delta) {
+            int i = slot(key);
+            if (keys[i] != EMPTY) {
+                values[i] += delta;
+                return;
+            }
+            keys[i] = key;
+            values[i] = delta;
+            if (++size * 2 > keys.length) rehash();
+        }
+
+        void forEach(Visitor v) {
+            for (int i = 0; i < keys.length; i++)
+                if (keys[i] != EMPTY) v.visit(keys[i], values[i]);
+        }
+
+        long bytes() {
+            return 12L * keys.length;
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            long h = key * 0x9E3779B97F4A7C15L;
+            int i = (int) (h ^ (h >>> 32)) & mask;
+            while (keys[i] != EMPTY && keys[i] != key) i = (i + 1) & mask;
+            return i;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            values = new int[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY) continue;
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
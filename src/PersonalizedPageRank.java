@@ -0,0 +1,219 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * PersonalizedPageRank: 以种子词为中心的个性化 PageRank，用于查询“与某个词最相关的词”。
+ * 游走者每一步以概率 ALPHA 停下（等价于跳回种子重新开始），否则按边权选一条出边前进；
+ * 悬挂节点（无出边）直接跳回种子。节点的 PPR 值即游走停在该节点的概率。
+ *
+ * 提供两种近似算法，都只访问种子附近的一小部分图，查询耗时与图的总规模基本无关：
+ * <ul>
+ *   <li>Monte Carlo：并行执行大量短游走，按终点频率估计，给出 Hoeffding 误差界（概率意义）；</li>
+ *   <li>Forward Push：确定性的局部推送，估计值不超过真实值，且差值不超过剩余残量之和。</li>
+ * </ul>
+ */
+final class PersonalizedPageRank {
+    /** 每一步停下的概率，对应全图 PageRank 中的 1 - d */
+    static final double ALPHA = 0.15;
+    /** Monte Carlo 误差界的置信度为 1 - DELTA */
+    static final double DELTA = 0.05;
+    // 每个并行任务负责的游走条数
+    private static final int WALKS_PER_TASK = 4096;
+    // 单条游走的步数上限，(1 - ALPHA)^200 已可忽略
+    private static final int MAX_STEPS = 200;
+
+    private PersonalizedPageRank() {}
+
+    /** 估计结果，节点按分值降序（并列时按字典序）排列 */
+    static final class Result {
+        final CompactGraph graph;
+        final int seed;
+        final int[] nodes;
+        final double[] scores;
+        /** 任一节点的 |估计值 - 真实值| 的上界（Monte Carlo 为以 1 - DELTA 置信度成立的界） */
+        final double error;
+
+        private Result(CompactGraph graph, int seed, int[] nodes, double[] scores, double error) {
+            this.graph = graph;
+            this.seed = seed;
+            this.nodes = nodes;
+            this.scores = scores;
+            this.error = error;
+        }
+
+        /** 分值最高的 k 个节点（不含种子本身） */
+        List<GraphRankIndex.RankEntry> top(int k) {
+            List<GraphRankIndex.RankEntry> out = new ArrayList<>();
+            for (int i = 0; i < nodes.length && out.size() < k; i++)
+                if (nodes[i] != seed) out.add(new GraphRankIndex.RankEntry(graph.words[nodes[i]], scores[i]));
+            return out;
+        }
+    }
+
+    /** 使单个节点的误差以 1 - DELTA 置信度不超过 epsilon 所需的游走条数（Hoeffding 不等式） */
+    static int walksFor(double epsilon) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, Math.ceil(Math.log(2 / DELTA) / (2 * epsilon * epsilon)));
+    }
+
+    /**
+     * Monte Carlo 估计：从 seed 出发执行 walks 条游走，各任务使用由 rngSeed 派生的独立随机数流，
+     * 因此结果只取决于 rngSeed，与线程调度无关。
+     */
+    static Result monteCarlo(CompactGraph g, int seed, int walks, long rngSeed) {
+        int[] endpoints = new int[walks];
+        int tasks = (walks + WALKS_PER_TASK - 1) / WALKS_PER_TASK;
+        // 顺序 split 出各任务的随机数流：相邻种子构造的 SplittableRandom 彼此只差一步，不能直接用 rngSeed + t
+        SplittableRandom base = new SplittableRandom(rngSeed);
+        SplittableRandom[] streams = new SplittableRandom[tasks];
+        for (int t = 0; t < tasks; t++) streams[t] = base.split();
+        IntStream.range(0, tasks).parallel().forEach(t -> {
+            SplittableRandom rnd = streams[t];
+            int end = Math.min(walks, (t + 1) * WALKS_PER_TASK);
+            for (int i = t * WALKS_PER_TASK; i < end; i++) {
+                int u = seed;
+                for (int step = 0; step < MAX_STEPS && rnd.nextDouble() >= ALPHA; step++) {
+                    int e = g.sampleEdge(u, rnd);
+                    u = e < 0 ? seed : g.targets[e];
+                }
+                endpoints[i] = u;
+            }
+        });
+        // 排序后按段计数，避免为每次查询分配与图同样大的计数数组
+        Arrays.sort(endpoints);
+        int distinct = 0;
+        for (int i = 0; i < walks; i++)
+            if (i == 0 || endpoints[i] != endpoints[i - 1]) distinct++;
+        int[] nodes = new int[distinct];
+        double[] scores = new double[distinct];
+        for (int i = 0, k = -1; i < walks; i++) {
+            if (i == 0 || endpoints[i] != endpoints[i - 1]) nodes[++k] = endpoints[i];
+            scores[k] += 1.0 / walks;
+        }
+        double error = walks == 0 ? 1 : Math.sqrt(Math.log(2 / DELTA) / (2.0 * walks));
+        return sorted(g, seed, nodes, scores, error);
+    }
+
+    /**
+     * Forward Push（Andersen-Chung-Lang）：残量 r 从种子出发，当 r(u) ≥ epsilon · 出度(u) 时把
+     * ALPHA · r(u) 记入估计值、其余按边权推给后继（悬挂节点推回种子）。
+     * 真实值 = 估计值 + Σ r(u) · PPR_u，故误差界为结束时的残量之和。
+     */
+    static Result forwardPush(CompactGraph g, int seed, double epsilon) {
+        SparseVector p = new SparseVector(), r = new SparseVector();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        r.add(seed, 1);
+        queue.add(seed);
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            double ru = r.get(u);
+            if (ru < epsilon * Math.max(1, g.outDegree(u))) continue;
+            r.set(u, 0);
+            p.add(u, ALPHA * ru);
+            double spread = (1 - ALPHA) * ru;
+            if (g.outWeight[u] == 0) {
+                push(g, r, queue, seed, spread, epsilon);
+                continue;
+            }
+            double unit = spread / g.outWeight[u];
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++)
+                push(g, r, queue, g.targets[e], unit * g.weights[e], epsilon);
+        }
+        double residual = 0;
+        for (double v : r.values()) residual += v;
+        return sorted(g, seed, p.keys(), p.values(), residual);
+    }
+
+    // 给 v 的残量加上 amount，刚越过阈值时入队（已在队中的节点不会重复入队）
+    private static void push(CompactGraph g, SparseVector r, ArrayDeque<Integer> queue, int v, double amount,
+                             double epsilon) {
+        double before = r.get(v), after = r.add(v, amount);
+        double threshold = epsilon * Math.max(1, g.outDegree(v));
+        if (before < threshold && after >= threshold) queue.add(v);
+    }
+
+    private static Result sorted(CompactGraph g, int seed, int[] nodes, double[] scores, double error) {
+        Integer[] order = new Integer[nodes.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int c = Double.compare(scores[b], scores[a]);
+            return c != 0 ? c : Integer.compare(g.lexRank[nodes[a]], g.lexRank[nodes[b]]);
+        });
+        int[] n = new int[nodes.length];
+        double[] s = new double[nodes.length];
+        for (int i = 0; i < order.length; i++) {
+            n[i] = nodes[order[i]];
+            s[i] = scores[order[i]];
+        }
+        return new Result(g, seed, n, s, error);
+    }
+
+    /** 节点编号 -> double 的开放寻址表，只为推送中实际触及的节点分配空间 */
+    private static final class SparseVector {
+        private int[] keys = new int[64];
+        private double[] values = new double[64];
+        private boolean[] used = new boolean[64];
+        private int size;
+
+        double get(int key) {
+            int i = slot(key);
+            return used[i] ? values[i] : 0;
+        }
+
+        void set(int key, double value) {
+            int i = slot(key);
+            if (!used[i]) {
+                used[i] = true;
+                keys[i] = key;
+                values[i] = value;
+                if (++size * 2 > keys.length) rehash();
+                return;
+            }
+            values[i] = value;
+        }
+
+        double add(int key, double delta) {
+            int i = slot(key);
+            if (used[i]) return values[i] += delta;
+            set(key, delta);
+            return delta;
+        }
+
+        int[] keys() {
+            int[] out = new int[size];
+            for (int i = 0, k = 0; i < keys.length; i++)
+                if (used[i]) out[k++] = keys[i];
+            return out;
+        }
+
+        // 与 keys() 顺序一致
+        double[] values() {
+            double[] out = new double[size];
+            for (int i = 0, k = 0; i < keys.length; i++)
+                if (used[i]) out[k++] = values[i];
+            return out;
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int i = (key * 0x9E3779B9) >>> 7 & mask;
+            while (used[i] && keys[i] != key) i = (i + 1) & mask;
+            return i;
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            double[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new int[oldKeys.length * 2];
+            values = new double[keys.length];
+            used = new boolean[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (!oldUsed[i]) continue;
+                int j = slot(oldKeys[i]);
+                used[j] = true;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * ResultCache: 查询结果缓存，键为（操作、归一化后的参数、图版本），值为结果字符串。
+ * 按字节数限制容量（textgraph.cache.mb，默认 64 MB，0 表示关闭）。
+ *
+ * 键按散列分到 STRIPES 个分段，各分段独立加锁，多个查询线程互不阻塞。
+ * 每个分段使用分段 LRU（SLRU）：新结果先进入试用区，再次命中时晋升到保护区（占分段容量的 80%），
+ * 保护区溢出的结果退回试用区；淘汰总是从试用区最久未用的一端开始。只被查询过一次的冷门结果
+ * 不会挤掉反复命中的热门结果，适合查询分布高度偏斜的场景。
+ * 单个结果超过分段容量的 1/8 时不缓存（如很长的一对多最短路径报告）。
+ * 图变化时由 TextGraph 清空；键中的版本号保证即使与清空并发，也不会返回旧版本的结果。
+ */
+final class ResultCache {
+    private static final int STRIPES = 16;
+    private static final double PROTECTED_SHARE = 0.8;
+    // 每个条目除字符串内容外的大致开销（键对象、链表节点、散列表槽）
+    private static final int ENTRY_OVERHEAD = 160;
+
+    private record Key(String op, String a, String b, long version) {}
+
+    private static final class Entry {
+        final String value;
+        final long bytes;
+
+        Entry(String value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    /** 一个分段：试用区与保护区都是按访问顺序排列的 LinkedHashMap，最久未用的在前 */
+    private static final class Stripe {
+        final LinkedHashMap<Key, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+        final LinkedHashMap<Key, Entry> protect = new LinkedHashMap<>(16, 0.75f, true);
+        long probationBytes, protectedBytes;
+    }
+
+    final long maxBytes;
+    private final long stripeBytes, protectedLimit;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    ResultCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.stripeBytes = this.maxBytes / STRIPES;
+        this.protectedLimit = (long) (stripeBytes * PROTECTED_SHARE);
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    /** 由系统属性 textgraph.cache.mb 读取容量，默认 64 MB */
+    static ResultCache fromConfig() {
+        String v = System.getProperty("textgraph.cache.mb", "64").trim();
+        try {
+            long mb = Long.parseLong(v);
+            if (mb >= 0) return new ResultCache(mb << 20);
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("textgraph.cache.mb 必须是非负整数: " + v);
+    }
+
+    /** 取缓存的结果，未命中时调用 compute 计算并缓存；计算在锁外进行 */
+    String get(String op, String a, String b, long version, Supplier<String> compute) {
+        if (maxBytes == 0) return compute.get();
+        Key key = new Key(op, a, b, version);
+        Stripe s = stripeOf(key);
+        synchronized (s) {
+            Entry e = s.protect.get(key);
+            if (e == null && (e = s.probation.remove(key)) != null) {
+                // 试用区中的结果再次命中：晋升到保护区
+                s.probationBytes -= e.bytes;
+                s.protect.put(key, e);
+                s.protectedBytes += e.bytes;
+                demote(s);
+            }
+            if (e != null) {
+                hits.increment();
+                return e.value;
+            }
+        }
+        misses.increment();
+        String value = compute.get();
+        long bytes = ENTRY_OVERHEAD + 2L * (value.length() + op.length() + a.length() + b.length());
+        if (bytes > stripeBytes / 8) return value;
+        synchronized (s) {
+            if (!s.protect.containsKey(key) && !s.probation.containsKey(key)) {
+                s.probation.put(key, new Entry(value, bytes));
+                s.probationBytes += bytes;
+                evict(s);
+            }
+        }
+        return value;
+    }
+
+    private Stripe stripeOf(Key key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    // 保护区超过份额时，把最久未用的结果退回试用区（成为试用区中最近使用的一项）
+    private void demote(Stripe s) {
+        Iterator<Map.Entry<Key, Entry>> it = s.protect.entrySet().iterator();
+        while (s.protectedBytes > protectedLimit && it.hasNext()) {
+            Map.Entry<Key, Entry> oldest = it.next();
+            it.remove();
+            s.protectedBytes -= oldest.getValue().bytes;
+            s.probation.put(oldest.getKey(), oldest.getValue());
+            s.probationBytes += oldest.getValue().bytes;
+        }
+        evict(s);
+    }
+
+    private void evict(Stripe s) {
+        Iterator<Map.Entry<Key, Entry>> it = s.probation.entrySet().iterator();
+        while (s.probationBytes + s.protectedBytes > stripeBytes && it.hasNext()) {
+            s.probationBytes -= it.next().getValue().bytes;
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    /** 清空全部结果（图变化时调用），统计计数保留 */
+    void clear() {
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                s.probation.clear();
+                s.protect.clear();
+                s.probationBytes = s.protectedBytes = 0;
+            }
+        }
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    /** 当前缓存的条目数与估计字节数 */
+    long[] usage() {
+        long entries = 0, bytes = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                entries += s.probation.size() + s.protect.size();
+                bytes += s.probationBytes + s.protectedBytes;
+            }
+        }
+        return new long[]{entries, bytes};
+    }
+
+    /** 命中率等统计信息，一行文本 */
+    String stats() {
+        if (maxBytes == 0) return "结果缓存已关闭（textgraph.cache.mb=0）";
+        long h = hits(), m = misses();
+        long[] u = usage();
+        return String.format("结果缓存：命中 %d，未命中 %d，命中率 %.1f%%，淘汰 %d，条目 %d，占用 %.1f / %d MB",
+                h, m, h + m == 0 ? 0 : 100.0 * h / (h + m), evictions.sum(), u[0], u[1] / 1048576.0, maxBytes >> 20);
+    }
+}
@@ -0,0 +1,299 @@
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * ShortestPaths: 基于 CompactGraph 的最短路径计算（边权为出现次数，Dijkstra）。
+ * 所有方法只读快照、不共享可变状态，可在多个线程中并发调用。
+ */
+final class ShortestPaths {
+    static final int INF = Integer.MAX_VALUE;
+
+    private ShortestPaths() {}
+
+    /** 单源最短路径树：dist[v] 为距离（不可达为 INF），prev[v] 为前驱（无则 -1） */
+    static final class Tree {
+        final int source;
+        final int[] dist;
+        final int[] prev;
+
+        Tree(int source, int[] dist, int[] prev) {
+            this.source = source;
+            this.dist = dist;
+            this.prev = prev;
+        }
+
+        boolean reachable(int t) { return dist[t] != INF; }
+
+        /** 从源点到 t 的路径（按顺序的单词），不可达时返回空列表 */
+        List<String> path(CompactGraph g, int t) {
+            if (!reachable(t)) return Collections.emptyList();
+            List<String> path = new ArrayList<>();
+            for (int cur = t; cur != -1; cur = prev[cur]) path.add(g.words[cur]);
+            Collections.reverse(path);
+            return path;
+        }
+    }
+
+    /**
+     * 从 src 出发运行 Dijkstra。
+     * @param targets 非 null 时，一旦其中所有节点都已出队即提前结束；为 null 则计算到所有节点
+     */
+    static Tree dijkstra(CompactGraph g, int src, BitSet targets) {
+        return dijkstra(g, src, targets, null, null);
+    }
+
+    /** 带约束的 Dijkstra：跳过 blockedNodes 中的节点和 blockedEdges 中的边（键为 u << 32 | v） */
+    private static Tree dijkstra(CompactGraph g, int src, BitSet targets,
+                                 boolean[] blockedNodes, Set<Long> blockedEdges) {
+        int n = g.size();
+        int[] dist = new int[n], prev = new int[n];
+        Arrays.fill(dist, INF);
+        Arrays.fill(prev, -1);
+        boolean[] done = new boolean[n];
+        int remaining = targets == null ? -1 : targets.cardinality();
+        dist[src] = 0;
+        LongHeap pq = new LongHeap();
+        pq.push(0, src);
+        while (!pq.isEmpty()) {
+            long top = pq.pop();
+            int u = (int) top;
+            if (done[u]) continue;
+            done[u] = true;
+            if (remaining > 0 && targets.get(u) && --remaining == 0) break;
+            int du = dist[u];
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++) {
+                int v = g.targets[e], nd = du + g.weights[e];
+                if (blockedNodes != null && blockedNodes[v]) continue;
+                if (blockedEdges != null && blockedEdges.contains(edgeKey(u, v))) continue;
+                if (nd < dist[v]) {
+                    dist[v] = nd;
+                    prev[v] = u;
+                    pq.push(nd, v);
+                }
+            }
+        }
+        return new Tree(src, dist, prev);
+    }
+
+    private static long edgeKey(int u, int v) { return ((long) u << 32) | v; }
+
+    /** 一条路径：节点序列及总长度 */
+    static final class Path implements Comparable<Path> {
+        final int[] nodes;
+        final int length;
+
+        Path(int[] nodes, int length) {
+            this.nodes = nodes;
+            this.length = length;
+        }
+
+        String format(CompactGraph g) {
+            return Arrays.stream(nodes).mapToObj(v -> g.words[v]).collect(Collectors.joining(" -> "));
+        }
+
+        @Override
+        public int compareTo(Path o) {
+            int c = Integer.compare(length, o.length);
+            return c != 0 ? c : Arrays.compare(nodes, o.nodes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Path p && length == p.length && Arrays.equals(nodes, p.nodes);
+        }
+
+        @Override
+        public int hashCode() { return Arrays.hashCode(nodes); }
+    }
+
+    /** 全部等长最短路径：total 为路径总数（溢出时饱和为 Long.MAX_VALUE），paths 最多保留 limit 条 */
+    static final class TiedPaths {
+        final long total;
+        final List<Path> paths;
+
+        TiedPaths(long total, List<Path> paths) {
+            this.total = total;
+            this.paths = paths;
+        }
+    }
+
+    /**
+     * 求 s 到 t 的所有等长最短路径。Dijkstra 过程中为每个节点维护前驱集合，
+     * 构成以 s 为根的最短路径 DAG；先按出队顺序做 DP 统计路径总数，
+     * 再从 t 沿前驱回溯枚举，最多展开 limit 条，避免路径数指数增长时耗尽内存。
+     */
+    static TiedPaths allShortest(CompactGraph g, int s, int t, int limit) {
+        int n = g.size();
+        int[] dist = new int[n];
+        Arrays.fill(dist, INF);
+        int[][] preds = new int[n][];
+        int[] predCount = new int[n];
+        boolean[] done = new boolean[n];
+        int[] order = new int[n];
+        int settled = 0;
+        dist[s] = 0;
+        LongHeap pq = new LongHeap();
+        pq.push(0, s);
+        while (!pq.isEmpty()) {
+            int u = (int) pq.pop();
+            if (done[u]) continue;
+            done[u] = true;
+            order[settled++] = u;
+            if (u == t) break;
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++) {
+                int v = g.targets[e], nd = dist[u] + g.weights[e];
+                if (nd < dist[v]) {
+                    dist[v] = nd;
+                    predCount[v] = 0;
+                    pq.push(nd, v);
+                }
+                if (nd == dist[v]) {
+                    if (preds[v] == null) preds[v] = new int[2];
+                    else if (predCount[v] == preds[v].length) preds[v] = Arrays.copyOf(preds[v], predCount[v] * 2);
+                    preds[v][predCount[v]++] = u;
+                }
+            }
+        }
+        if (dist[t] == INF) return new TiedPaths(0, Collections.emptyList());
+
+        // 按出队顺序（距离非降）统计从 s 到各节点的最短路径条数
+        long[] count = new long[n];
+        count[s] = 1;
+        for (int i = 1; i < settled; i++) {
+            int v = order[i];
+            long c = 0;
+            for (int j = 0; j < predCount[v]; j++) {
+                c += count[preds[v][j]];
+                if (c < 0) { c = Long.MAX_VALUE; break; }
+            }
+            count[v] = c;
+        }
+
+        // 从 t 沿前驱做迭代式 DFS，得到的节点序列是反向的
+        List<Path> paths = new ArrayList<>();
+        int[] stack = new int[settled], next = new int[settled];
+        int depth = 0;
+        stack[0] = t;
+        next[0] = 0;
+        while (depth >= 0 && paths.size() < limit) {
+            int v = stack[depth];
+            if (v == s) {
+                int[] nodes = new int[depth + 1];
+                for (int i = 0; i <= depth; i++) nodes[i] = stack[depth - i];
+                paths.add(new Path(nodes, dist[t]));
+                depth--;
+            } else if (next[depth] < predCount[v]) {
+                int u = preds[v][next[depth]++];
+                stack[++depth] = u;
+                next[depth] = 0;
+            } else {
+                depth--;
+            }
+        }
+        Collections.sort(paths);
+        return new TiedPaths(count[t], paths);
+    }
+
+    /**
+     * Yen 算法求 s 到 t 的前 k 条无环最短路径（按长度升序，等长时按节点序列排序）。
+     * 每一轮对上一条路径上各偏离点的 spur 路径并行求解；候选集合只保留还可能入选的
+     * k - |A| 条，且按路径去重，内存与 k 成正比。
+     */
+    static List<Path> kShortest(CompactGraph g, int s, int t, int k) {
+        List<Path> accepted = new ArrayList<>();
+        if (k <= 0) return accepted;
+        BitSet stop = new BitSet();
+        stop.set(t);
+        Tree first = dijkstra(g, s, stop);
+        if (!first.reachable(t)) return accepted;
+        accepted.add(toPath(first, s, t, null, 0));
+        Set<Path> acceptedSet = new HashSet<>(accepted);
+        TreeSet<Path> candidates = new TreeSet<>();
+
+        while (accepted.size() < k) {
+            Path last = accepted.get(accepted.size() - 1);
+            int[] prefix = new int[last.nodes.length];
+            for (int i = 1; i < prefix.length; i++)
+                prefix[i] = prefix[i - 1] + g.weights[g.edge(last.nodes[i - 1], last.nodes[i])];
+
+            List<Path> spurs = IntStream.range(0, last.nodes.length - 1).parallel()
+                    .mapToObj(i -> spurPath(g, accepted, last, prefix, i, t))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            for (Path p : spurs)
+                if (!acceptedSet.contains(p)) candidates.add(p);
+            while (candidates.size() > k - accepted.size()) candidates.pollLast();
+            if (candidates.isEmpty()) break;
+            Path best = candidates.pollFirst();
+            accepted.add(best);
+            acceptedSet.add(best);
+        }
+        return accepted;
+    }
+
+    // 以 last 的第 i 个节点为偏离点：屏蔽根路径上的其他节点以及已选路径在该处的下一条边
+    private static Path spurPath(CompactGraph g, List<Path> accepted, Path last, int[] prefix, int i, int t) {
+        int spur = last.nodes[i];
+        boolean[] blockedNodes = new boolean[g.size()];
+        for (int j = 0; j < i; j++) blockedNodes[last.nodes[j]] = true;
+        Set<Long> blockedEdges = new HashSet<>();
+        for (Path p : accepted) {
+            if (p.nodes.length > i + 1 && Arrays.equals(p.nodes, 0, i + 1, last.nodes, 0, i + 1))
+                blockedEdges.add(edgeKey(p.nodes[i], p.nodes[i + 1]));
+        }
+        BitSet stop = new BitSet();
+        stop.set(t);
+        Tree tree = dijkstra(g, spur, stop, blockedNodes, blockedEdges);
+        if (!tree.reachable(t)) return null;
+        return toPath(tree, spur, t, Arrays.copyOf(last.nodes, i), prefix[i]);
+    }
+
+    // 把最短路径树中 from 到 t 的路径接在 root 之后
+    private static Path toPath(Tree tree, int from, int t, int[] root, int rootLength) {
+        int len = 0;
+        for (int cur = t; cur != -1; cur = tree.prev[cur]) len++;
+        int rootSize = root == null ? 0 : root.length;
+        int[] nodes = new int[rootSize + len];
+        if (root != null) System.arraycopy(root, 0, nodes, 0, rootSize);
+        int i = nodes.length - 1;
+        for (int cur = t; cur != -1; cur = tree.prev[cur]) nodes[i--] = cur;
+        return new Path(nodes, rootLength + tree.dist[t]);
+    }
+
+    /** 以 (距离 << 32 | 节点) 为键的最小二叉堆，避免装箱 */
+    static final class LongHeap {
+        private long[] heap = new long[16];
+        private int size;
+
+        boolean isEmpty() { return size == 0; }
+
+        void push(int dist, int node) {
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            long key = ((long) dist << 32) | (node & 0xffffffffL);
+            int i = size++;
+            while (i > 0) {
+                int p = (i - 1) >>> 1;
+                if (heap[p] <= key) break;
+                heap[i] = heap[p];
+                i = p;
+            }
+            heap[i] = key;
+        }
+
+        long pop() {
+            long top = heap[0], last = heap[--size];
+            int i = 0;
+            while (true) {
+                int c = 2 * i + 1;
+                if (c >= size) break;
+                if (c + 1 < size && heap[c + 1] < heap[c]) c++;
+                if (heap[c] >= last) break;
+                heap[i] = heap[c];
+                i = c;
+            }
+            heap[i] = last;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * TextGenerator: 在词图上做束搜索（beam search）来续写或补全文本。
+ * 一步从 u 走到 v 的得分为 log(w(u,v) / 出边权重之和(u))，即二元语言模型的对数概率；
+ * 可选地再加上 prWeight · log(n · PR(v))，偏向全局重要的词。同一条边在一个候选中只走一次，避免原地打转。
+ *
+ * 每个节点只展开权重最大的 SUCCESSORS 条出边，这些后继列表首次用到时计算并缓存（按快照缓存整个生成器）；
+ * 补全时若只用这些出边找不到终点，再按完整的出边重新搜索一次。
+ * 候选数足够多时各束的扩展与打分并行执行；结果只取决于输入，与线程调度无关。
+ */
+final class TextGenerator {
+    /** 每个节点最多展开的后继数 */
+    static final int SUCCESSORS = 16;
+    // 一步的候选总数（束宽 × 后继数）达到该值才并行扩展，否则并行开销大于收益
+    private static final int PARALLEL_CANDIDATES = 512;
+
+    final CompactGraph graph;
+    private final AtomicReferenceArray<int[]> successors;
+
+    TextGenerator(CompactGraph g) {
+        this.graph = g;
+        this.successors = new AtomicReferenceArray<>(g.size());
+    }
+
+    /** 束中的一个候选：以链表形式共享前缀 */
+    private static final class Beam {
+        final Beam parent;
+        final int node, edge, length;   // edge 为走到 node 的边，起点为 -1
+        final double score;
+
+        Beam(Beam parent, int node, int edge, double score) {
+            this.parent = parent;
+            this.node = node;
+            this.edge = edge;
+            this.score = score;
+            this.length = parent == null ? 0 : parent.length + 1;
+        }
+
+        boolean usedEdge(int e) {
+            for (Beam b = this; b.parent != null; b = b.parent)
+                if (b.edge == e) return true;
+            return false;
+        }
+
+        // 平均每步得分，用于比较不同长度的候选
+        double meanScore() {
+            return length == 0 ? 0 : score / length;
+        }
+
+        int[] nodes() {
+            int[] out = new int[length];
+            Beam b = this;
+            for (int i = length - 1; i >= 0; i--, b = b.parent) out[i] = b.node;
+            return out;
+        }
+    }
+
+    /** u 权重最大的至多 SUCCESSORS 条出边（边下标），权重相同时按目标的字典序 */
+    int[] successors(int u) {
+        int[] s = successors.get(u);
+        if (s != null) return s;
+        // 插入法选出前 SUCCESSORS 条：O(出度)，高频词的出边可能有几十万条，不整行排序
+        int[] top = new int[Math.min(SUCCESSORS, graph.outDegree(u))];
+        int size = 0;
+        for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+            if (size == top.length && !ahead(e, top[size - 1])) continue;
+            int i = size < top.length ? size++ : size - 1;
+            while (i > 0 && ahead(e, top[i - 1])) {
+                top[i] = top[i - 1];
+                i--;
+            }
+            top[i] = e;
+        }
+        successors.compareAndSet(u, null, top);
+        return successors.get(u);
+    }
+
+    // 边 a 是否应排在边 b 之前：权重大者在前，相同时目标字典序小者在前
+    private boolean ahead(int a, int b) {
+        if (graph.weights[a] != graph.weights[b]) return graph.weights[a] > graph.weights[b];
+        return graph.lexRank[graph.targets[a]] < graph.lexRank[graph.targets[b]];
+    }
+
+    /**
+     * 从 start 出发续写至多 length 个词，返回续写出的节点序列（不含 start）。
+     * 遇到没有可走出边的节点时该候选提前结束；最终优先取最长的候选，长度相同时取得分最高的。
+     */
+    int[] continueFrom(int start, int length, int beamWidth, double prWeight) {
+        double[] pr = prWeight > 0 ? graph.pageRank() : null;
+        List<Beam> beams = List.of(new Beam(null, start, -1, 0));
+        Beam best = null;
+        for (int step = 0; step < length && !beams.isEmpty(); step++) {
+            List<Beam> next = expand(beams, beamWidth, pr, prWeight, false);
+            // 无法再扩展的候选就此结束，参与最终比较
+            for (Beam b : beams)
+                if (b.length > 0 && !extendable(b) && longer(b, best)) best = b;
+            beams = next;
+        }
+        for (Beam b : beams)
+            if (longer(b, best)) best = b;
+        return best == null ? new int[0] : best.nodes();
+    }
+
+    /**
+     * 在 from 与 to 之间插入至多 maxGap 个词，使 from -> … -> to 的平均每步得分最高；
+     * 返回插入的节点序列（from 到 to 有直接边且最优时为空数组），不可达时返回 null。
+     * 先只展开各节点的前 SUCCESSORS 条出边，找不到终点时（如直接边不在前 SUCCESSORS 条中）改用完整出边。
+     */
+    int[] fill(int from, int to, int maxGap, int beamWidth, double prWeight) {
+        return fill(from, v -> v == to, maxGap, beamWidth, prWeight);
+    }
+
+    /** 同上，终点为满足 isTarget 的任一节点（k 阶上下文模式下为以指定单词结尾的上下文） */
+    int[] fill(int from, IntPredicate isTarget, int maxGap, int beamWidth, double prWeight) {
+        int[] gap = fill(from, isTarget, maxGap, beamWidth, prWeight, false);
+        return gap != null ? gap : fill(from, isTarget, maxGap, beamWidth, prWeight, true);
+    }
+
+    private int[] fill(int from, IntPredicate isTarget, int maxGap, int beamWidth, double prWeight,
+                       boolean fullRows) {
+        double[] pr = prWeight > 0 ? graph.pageRank() : null;
+        List<Beam> beams = List.of(new Beam(null, from, -1, 0));
+        Beam best = null;
+        for (int step = 0; step <= maxGap && !beams.isEmpty(); step++) {
+            List<Beam> next = expand(beams, Integer.MAX_VALUE, pr, prWeight, fullRows);
+            List<Beam> open = new ArrayList<>();
+            for (Beam b : next) {
+                if (isTarget.test(b.node)) {
+                    if (better(b, best)) best = b;
+                } else if (open.size() < beamWidth) {
+                    open.add(b);
+                }
+            }
+            beams = open;
+        }
+        if (best == null) return null;
+        int[] path = best.nodes();
+        return Arrays.copyOf(path, path.length - 1);
+    }
+
+    private boolean extendable(Beam b) {
+        for (int e : successors(b.node))
+            if (!b.usedEdge(e)) return true;
+        return false;
+    }
+
+    private static boolean longer(Beam a, Beam b) {
+        return b == null || a.length > b.length || a.length == b.length && a.score > b.score;
+    }
+
+    private static boolean better(Beam a, Beam b) {
+        return b == null || a.meanScore() > b.meanScore();
+    }
+
+    // 扩展所有候选并按得分降序保留前 keep 个；得分相同时保持扩展顺序，结果确定
+    // fullRows 为 true 时展开完整出边，否则只展开缓存的前 SUCCESSORS 条
+    private List<Beam> expand(List<Beam> beams, int keep, double[] pr, double prWeight, boolean fullRows) {
+        boolean parallel = (long) beams.size() * SUCCESSORS >= PARALLEL_CANDIDATES;
+        List<List<Beam>> expanded = (parallel ? beams.parallelStream() : beams.stream())
+                .map(b -> fullRows ? expandAll(b, pr, prWeight) : expandOne(b, pr, prWeight))
+                .collect(Collectors.toList());
+        List<Beam> all = new ArrayList<>();
+        for (List<Beam> list : expanded) all.addAll(list);
+        all.sort((a, b) -> Double.compare(b.score, a.score));
+        return all.size() > keep ? new ArrayList<>(all.subList(0, keep)) : all;
+    }
+
+    private List<Beam> expandOne(Beam b, double[] pr, double prWeight) {
+        List<Beam> out = new ArrayList<>();
+        for (int e : successors(b.node)) step(b, e, pr, prWeight, out);
+        return out;
+    }
+
+    private List<Beam> expandAll(Beam b, double[] pr, double prWeight) {
+        List<Beam> out = new ArrayList<>();
+        for (int e = graph.offsets[b.node]; e < graph.offsets[b.node + 1]; e++) step(b, e, pr, prWeight, out);
+        return out;
+    }
+
+    private void step(Beam b, int e, double[] pr, double prWeight, List<Beam> out) {
+        if (b.usedEdge(e)) return;
+        CompactGraph g = graph;
+        int u = b.node, v = g.targets[e];
+        double score = Math.log((double) g.weights[e] / g.outWeight[u]);
+        if (pr != null) score += prWeight * Math.log(pr[v] * g.size());
+        out.add(new Beam(b, v, e, b.score + score));
+    }
+}
@@ -0,0 +1,755 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.BinaryOperator;
+
+/**
+ * TextGraph: 文本图的分析引擎，不依赖 Swing。
+ * 持有当前图的 CSR 快照、按版本缓存的索引、历史版本，提供加载与全部查询功能；
+ * 构建阶段的邻接表（或 k 阶上下文表）在生成快照后即丢弃，不常驻内存；
+ * 图形界面（TextGraphAnalyzer）与命令行批处理（BatchRunner）共用同一个引擎。
+ * 查询方法可以在多个线程中同时调用，加载（替换当前图）与查询之间由调用方保证不重叠。
+ */
+final class TextGraph {
+    // 图版本号：每次替换图时递增，排行索引等按版本缓存
+    private volatile long graphVersion;
+    // 当前图：只读的 CSR 快照，替换图时整体换掉
+    private CompactGraph snapshot = CompactGraph.of(Collections.emptyMap(), 0, CompactGraph.NodeOrder.LEXICOGRAPHIC);
+    private GraphRankIndex rankIndex;
+    private GraphAnalytics analytics;
+    private TextGenerator textGenerator;
+    // 历史版本（最旧的在前），相邻版本共享未变化的行与单词，见 GraphSnapshot
+    private final List<GraphSnapshot> history = new ArrayList<>();
+    private final GraphSnapshot.WordPool wordPool = new GraphSnapshot.WordPool();
+    private static final int MAX_HISTORY = 8;
+    // 构图与查询共用的分词器（配置见 Tokenizer.fromConfig）
+    private final Tokenizer tokenizer = Tokenizer.fromConfig();
+    // 上下文阶数（textgraph.ngram）：大于 1 时节点为连续 k 个单词，见 HigherOrderGraph
+    private final int ngramOrder = HigherOrderGraph.orderFromConfig();
+    // 快照的节点编号方式（textgraph.nodeOrder），创建时读取一次
+    private final CompactGraph.NodeOrder nodeOrder = CompactGraph.NodeOrder.fromConfig();
+    // 桥接词与最短路径的结果缓存，键中含图版本，图变化时清空
+    private final ResultCache cache = ResultCache.fromConfig();
+
+    /** 当前图的节点数 */
+    public int size() {
+        return snapshot().size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** 加载单个文件并替换当前图：.gz / .zip 流式解压，其余按文本读取 */
+    public void loadFile(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".gz") || name.endsWith(".zip")) {
+            // 压缩文件走流式加载，不解压到临时文件
+            install(load(new CorpusLoader(tokenizer, false), List.of(file), null), file.getFileName().toString());
+        } else {
+            buildGraph(new String(Files.readAllBytes(file)), file.getFileName().toString());
+        }
+    }
+
+    void buildGraph(String raw) throws IOException {
+        buildGraph(raw, "文本");
+    }
+
+    /** 由文本构建并替换当前图；k 阶上下文模式下词表超出上限时抛出 IOException，当前图不变 */
+    void buildGraph(String raw, String label) throws IOException {
+        if (ngramOrder > 1) installGraph(HigherOrderGraph.build(raw, tokenizer, ngramOrder), label);
+        else installGraph(GraphBuilder.build(raw, tokenizer), label);
+    }
+
+    /** 用新构建的邻接表替换当前图，并使按版本缓存的结果失效；同时记入历史版本 */
+    synchronized void installGraph(Map<String, Map<String, Integer>> g, String label) {
+        install(CompactGraph.of(g, graphVersion + 1, nodeOrder), label);
+    }
+
+    /** 同上，k 阶上下文图直接由打包的上下文表生成快照，不经过邻接表 */
+    synchronized void installGraph(HigherOrderGraph g, String label) {
+        install(g.toCompact(graphVersion + 1, nodeOrder), label);
+    }
+
+    private synchronized void install(CompactGraph g, String label) {
+        replaceGraph(g);
+        addSnapshot(GraphSnapshot.of(g, label, history.isEmpty() ? null : history.getLast(), wordPool));
+    }
+
+    // CorpusLoader 的结果：k 阶上下文模式下是上下文图，否则是相邻词图
+    private synchronized void install(CorpusLoader.Result r, String label) {
+        if (r.contexts != null) installGraph(r.contexts, label);
+        else installGraph(r.graph, label);
+    }
+
+    private CorpusLoader.Result load(CorpusLoader loader, List<Path> files, CorpusLoader.Progress progress)
+            throws IOException {
+        return ngramOrder > 1 ? loader.loadContexts(files, ngramOrder, progress) : loader.load(files, progress);
+    }
+
+    private synchronized void replaceGraph(CompactGraph g) {
+        snapshot = g;
+        graphVersion = g.version;
+        cache.clear();
+    }
+
+    // 记入历史时不展开任何版本（见 GraphSnapshot），加载不因此变慢
+    private synchronized void addSnapshot(GraphSnapshot s) {
+        history.add(s);
+        if (history.size() > MAX_HISTORY) {
+            history.removeFirst();
+            history.getFirst().forgetPrevious();
+            wordPool.retain(history);
+        }
+    }
+
+    /**
+     * 加载 dir 下匹配 glob 的所有文件并替换当前图。
+     * @param linkAcrossFiles 是否把相邻文件（按路径排序）的末词与首词连边
+     * @param progress 进度回调，可为 null
+     */
+    public CorpusLoader.Result loadDirectory(Path dir, String glob, boolean linkAcrossFiles,
+                                             CorpusLoader.Progress progress) throws IOException {
+        CorpusLoader.Result r = load(new CorpusLoader(tokenizer, linkAcrossFiles),
+                CorpusLoader.listFiles(dir, glob), progress);
+        install(r, dir.getFileName() + "/" + glob);
+        return r;
+    }
+
+    /**
+     * 查询单词的归一化，与构图时的分词规则一致；切不出单词时退回小写原文，便于提示。
+     * k 阶上下文模式下节点是 k 个单词，输入切词后以空格连接（如 "the curse"）。
+     * 切出的单词数不是 1（k 阶模式下不是 k）时抛出 IllegalArgumentException，消息可直接展示给用户；
+     * 各查询方法把它转为提示信息返回，而不是查询被截断的单词。
+     */
+    private String normalize(String word) {
+        if (ngramOrder > 1 && word != null) {
+            List<String> tokens = tokenizer.tokenize(word);
+            if (tokens.isEmpty()) return word.toLowerCase();
+            if (tokens.size() != ngramOrder)
+                throw new IllegalArgumentException("请输入 " + ngramOrder + " 个单词: " + word.trim());
+            return String.join(" ", tokens);
+        }
+        String w = tokenizer.normalize(word);
+        return w != null ? w : word.toLowerCase();
+    }
+
+    /** tokens 中从 from 开始的 k 个单词组成的节点标签 */
+    private static String window(List<String> tokens, int from, int k) {
+        return k == 1 ? tokens.get(from) : String.join(" ", tokens.subList(from, from + k));
+    }
+
+    /** 上下文 label 之后出现单词 w 时的后继上下文：去掉第一个单词、末尾接上 w（k = 1 时即 w） */
+    private static String shift(String label, String w) {
+        int sp = label.indexOf(' ');
+        return sp < 0 ? w : label.substring(sp + 1) + " " + w;
+    }
+
+    /** 节点标签的最后一个单词：k 阶上下文模式下后继上下文只比前一个多出这个单词 */
+    private static String lastToken(String label) {
+        return label.substring(label.lastIndexOf(' ') + 1);
+    }
+
+    /** 当前图的 CSR 快照 */
+    synchronized CompactGraph snapshot() {
+        return snapshot;
+    }
+
+    /** 当前图版本的排行索引，图变化后首次访问时重建 */
+    synchronized GraphRankIndex rankIndex() {
+        CompactGraph g = snapshot();
+        if (rankIndex == null || rankIndex.graph != g) rankIndex = new GraphRankIndex(g);
+        return rankIndex;
+    }
+
+    /** 当前图版本的分析结果（强连通分量、可达性索引），图变化后首次访问时重建 */
+    synchronized GraphAnalytics analytics() {
+        CompactGraph g = snapshot();
+        if (analytics == null || analytics.graph != g) analytics = new GraphAnalytics(g);
+        return analytics;
+    }
+
+    /** 当前图版本的文本生成器（缓存各节点的后继列表），图变化后首次访问时重建 */
+    synchronized TextGenerator textGenerator() {
+        CompactGraph g = snapshot();
+        if (textGenerator == null || textGenerator.graph != g) textGenerator = new TextGenerator(g);
+        return textGenerator;
+    }
+
+    /** 当前图的 DOT 描述；按字典序输出节点与出边，使内容与内部编号方式无关 */
+    public String toDot() {
+        return toDot(snapshot());
+    }
+
+    /** 快照 g 的 DOT 描述（同上）；渲染等后台任务用它固定在开始时取得的版本上 */
+    static String toDot(CompactGraph g) {
+        StringBuilder dot = new StringBuilder("digraph G {\n");
+        long[] row = new long[0];
+        for (int u : g.lexOrder) {
+            int cnt = g.outDegree(u);
+            if (row.length < cnt) row = new long[cnt];
+            for (int i = 0; i < cnt; i++) {
+                int e = g.offsets[u] + i;
+                row[i] = ((long) g.lexRank[g.targets[e]] << 32) | e;
+            }
+            Arrays.sort(row, 0, cnt);
+            for (int i = 0; i < cnt; i++) {
+                int e = (int) row[i];
+                dot.append(String.format("  \"%s\" -> \"%s\" [label=%d];%n",
+                        g.words[u], g.words[g.targets[e]], g.weights[e]));
+            }
+        }
+        return dot.append("}\n").toString();
+    }
+
+    /** 查询桥接词，结果按（归一化后的单词、图版本）缓存 */
+    public String queryBridgeWords(String word1, String word2) {
+        if (word1 == null || word2 == null || word1.trim().isEmpty() || word2.trim().isEmpty()) {
+            return "请输入两个单词！";
+        }
+        String w1, w2;
+        try {
+            w1 = normalize(word1);
+            w2 = normalize(word2);
+        } catch (IllegalArgumentException ex) {
+            return ex.getMessage();
+        }
+        return cachedBridgeWords(w1, w2);
+    }
+    // 参数为归一化后的单词
+    private String cachedBridgeWords(String w1, String w2) {
+        return cache.get("bridge", w1, w2, graphVersion, () -> bridgeWords(w1, w2));
+    }
+    private String bridgeWords(String word1, String word2) {
+        CompactGraph g = snapshot();
+        int a = g.id(word1), b = g.id(word2);
+        if (a < 0 && b < 0) return "No " + word1 + " and " + word2 + " in the graph!";
+        if (a < 0) return "No " + word1 + " in the graph!";
+        if (b < 0) return "No " + word2 + " in the graph!";
+        List<String> bridges = new ArrayList<>();
+        for (int e = g.offsets[a]; e < g.offsets[a + 1]; e++)
+            if (g.edge(g.targets[e], b) >= 0)
+                bridges.add(g.words[g.targets[e]]);
+        return formatBridgeWords(word1, word2, bridges);
+    }
+    private static String formatBridgeWords(String word1, String word2, List<String> list) {
+        if (list.isEmpty())
+            return "No bridge words from \"" + word1 + "\" to \"" + word2 + "\"!";
+        Collections.sort(list);
+        if (list.size() == 1) {
+            return "The bridge words from \"" + word1 + "\" to \"" + word2 + "\" is: \"" + list.getFirst() + "\"";
+        } else {
+            StringJoiner sj = new StringJoiner(", ");
+            for (int i = 0; i < list.size() - 1; i++) sj.add(list.get(i));
+            return "The bridge words from \"" + word1 + "\" to \"" + word2 + "\" are: "
+                    + sj + ", and " + list.getLast();
+        }
+    }
+
+    /** 根据桥接词生成新文本 */
+    public String generateNewText(String inputText) {
+        return generateNewText(inputText, new Random());
+    }
+
+    /**
+     * 同上，桥接词的随机选择由 rand 决定。
+     * k 阶上下文模式下，单词 w 之后的桥接词 x 要求：以 w 结尾的 k 词窗口 -> 以 x 结尾的上下文
+     * -> 以下一个单词结尾的上下文 在图中构成两步路径；开头不足 k 个单词的位置不插入。
+     */
+    public String generateNewText(String inputText, Random rand) {
+        if (inputText == null || inputText.trim().isEmpty()) return "";
+        List<String> tokens = tokenizer.tokenize(inputText);
+        if (tokens.isEmpty()) return "";
+        String[] words = tokens.toArray(new String[0]);
+        int k = Math.max(1, ngramOrder);
+        CompactGraph g = snapshot();
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < words.length - 1; i++) {
+            String w1 = words[i], w2 = words[i + 1];
+            result.add(w1);
+            Set<String> bridges = new HashSet<>();
+            int u = i + 1 >= k ? g.id(window(tokens, i + 1 - k, k)) : -1;
+            if (u >= 0) {
+                for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++) {
+                    int mid = g.targets[e];
+                    int next = g.id(shift(g.words[mid], w2));
+                    if (next >= 0 && g.edge(mid, next) >= 0)
+                        bridges.add(lastToken(g.words[mid]));
+                }
+            }
+            if (!bridges.isEmpty()) {
+                List<String> b = new ArrayList<>(bridges);
+                result.add(b.get(rand.nextInt(b.size())));
+            }
+        }
+        result.add(words[words.length - 1]);
+        return String.join(" ", result);
+    }
+
+    /**
+     * 从 prefix 的最后一个词出发，用束搜索续写至多 length 个词，返回 prefix 加上续写部分。
+     * 打分见 {@link TextGenerator}；prWeight > 0 时偏向 PageRank 高的词。
+     */
+    public String continueText(String prefix, int length, int beamWidth, double prWeight) {
+        List<String> tokens = tokenizer.tokenize(prefix);
+        if (tokens.isEmpty()) return "请输入开头！";
+        if (length < 1 || beamWidth < 1) return "词数与束宽必须为正整数！";
+        // k 阶上下文模式下从最后 k 个词组成的上下文出发，每个后继上下文只贡献它的最后一个词
+        int k = Math.max(1, ngramOrder);
+        if (tokens.size() < k) return "开头至少需要 " + k + " 个单词！";
+        String context = String.join(" ", tokens.subList(tokens.size() - k, tokens.size()));
+        CompactGraph g = snapshot();
+        int start = g.id(context);
+        if (start < 0) return "No " + context + " in the graph!";
+        List<String> out = new ArrayList<>(tokens);
+        for (int v : textGenerator().continueFrom(start, length, beamWidth, prWeight))
+            out.add(lastToken(g.words[v]));
+        return String.join(" ", out);
+    }
+
+    /**
+     * 补全文本：在每对相邻单词之间插入至多 maxGap 个词，使这一段的平均对数概率最高
+     * （maxGap = 1 时相当于按权重挑选最可能的桥接词）；两词之间不可达时原样保留。
+     * k 阶上下文模式下从以前一个单词结尾的 k 词窗口出发，搜索到任一以后一个单词结尾的上下文为止，
+     * 每个插入的上下文贡献它的最后一个单词；开头不足 k 个单词的位置不补全。
+     */
+    public String fillText(String inputText, int maxGap, int beamWidth, double prWeight) {
+        List<String> tokens = tokenizer.tokenize(inputText);
+        if (tokens.isEmpty()) return "";
+        if (maxGap < 0 || beamWidth < 1) return "插入词数不能为负，束宽必须为正整数！";
+        int k = Math.max(1, ngramOrder);
+        if (tokens.size() <= k) return "k 阶上下文模式下（k=" + k + "）至少需要 " + (k + 1) + " 个单词！";
+        CompactGraph g = snapshot();
+        TextGenerator gen = textGenerator();
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            out.add(tokens.get(i));
+            if (i + 1 == tokens.size() || i + 1 < k) continue;
+            int a = g.id(window(tokens, i + 1 - k, k));
+            if (a < 0) continue;
+            int[] gap;
+            if (k == 1) {
+                int b = g.id(tokens.get(i + 1));
+                if (b < 0) continue;
+                gap = gen.fill(a, b, maxGap, beamWidth, prWeight);
+            } else {
+                String suffix = " " + tokens.get(i + 1);
+                gap = gen.fill(a, v -> g.words[v].endsWith(suffix), maxGap, beamWidth, prWeight);
+            }
+            if (gap != null) for (int v : gap) out.add(lastToken(g.words[v]));
+        }
+        return String.join(" ", out);
+    }
+
+    /** 计算最短路径，word2 为空时输出 word1 到所有节点的最短路径；结果按（归一化后的单词、图版本）缓存 */
+    public String calcShortestPath(String word1, String word2) {
+        if (isBlank(word1)) return "请输入起点单词！";
+        String w1, w2;
+        try {
+            w1 = normalize(word1);
+            w2 = isBlank(word2) ? "" : normalize(word2);
+        } catch (IllegalArgumentException ex) {
+            return ex.getMessage();
+        }
+        return cachedShortestPath(w1, w2);
+    }
+    // 参数为归一化后的单词，w2 为空串时表示到所有节点
+    private String cachedShortestPath(String w1, String w2) {
+        return cache.get("path", w1, w2, graphVersion, () -> shortestPath(w1, w2));
+    }
+    private String shortestPath(String word1, String word2) {
+        CompactGraph g = snapshot();
+        if (g.id(word1) < 0) return "No " + word1 + " in the graph!";
+
+        // 若未输入终点，则对所有节点批量计算：Dijkstra 一次，得到 dist 和 prev
+        if (word2.isEmpty())
+            return oneToAllReport(g, ShortestPaths.dijkstra(g, g.id(word1), null));
+
+        // 否则计算单对最短路径，终点出队即停止
+        int s = g.id(word1), t = g.id(word2);
+        if (t < 0) return "No " + word2 + " in the graph!";
+        // 先查可达性索引，不可达时无需搜索
+        if (!analytics().reachable(s, t)) return "不可达!";
+        BitSet stop = new BitSet();
+        stop.set(t);
+        return formatPath(g, ShortestPaths.dijkstra(g, s, stop), t);
+    }
+
+    // 最多列出的等长最短路径条数 / k 的上限，防止结果过大
+    private static final int MAX_PATHS = 1000;
+
+    /** 列出 word1 到 word2 的全部等长最短路径（超过 MAX_PATHS 条时只列出前 MAX_PATHS 条并给出总数） */
+    public String calcAllShortestPaths(String word1, String word2) {
+        String err = checkPathQuery(word1, word2);
+        if (err != null) return err;
+        CompactGraph g = snapshot();
+        int s = g.id(normalize(word1)), t = g.id(normalize(word2));
+        if (!analytics().reachable(s, t)) return "不可达!";
+        ShortestPaths.TiedPaths tied = ShortestPaths.allShortest(g, s, t, MAX_PATHS);
+        if (tied.total == 0) return "不可达!";
+        StringBuilder sb = new StringBuilder();
+        // 计数饱和时（见 ShortestPaths.allShortest）只说明条数溢出，不输出内部的上限常数
+        sb.append(tied.total == Long.MAX_VALUE
+                        ? "等长最短路径条数极多（超过 2^63−1，计数溢出）"
+                        : "共有 " + tied.total + " 条等长最短路径")
+                .append("，长度=").append(tied.paths.getFirst().length).append('\n');
+        for (int i = 0; i < tied.paths.size(); i++)
+            sb.append(i + 1).append(". ").append(tied.paths.get(i).format(g)).append('\n');
+        if (tied.total > tied.paths.size()) sb.append("（仅列出前 ").append(tied.paths.size()).append(" 条）\n");
+        return sb.toString();
+    }
+
+    /** Yen 算法求 word1 到 word2 的前 k 条无环最短路径，k 最大为 MAX_PATHS */
+    public String calcKShortestPaths(String word1, String word2, int k) {
+        String err = checkPathQuery(word1, word2);
+        if (err != null) return err;
+        if (k < 1) return "k 必须为正整数！";
+        CompactGraph g = snapshot();
+        int s = g.id(normalize(word1)), t = g.id(normalize(word2));
+        if (!analytics().reachable(s, t)) return "不可达!";
+        int limit = Math.min(k, MAX_PATHS);
+        List<ShortestPaths.Path> paths = ShortestPaths.kShortest(g, s, t, limit);
+        if (paths.isEmpty()) return "不可达!";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < paths.size(); i++)
+            sb.append(i + 1).append(". ").append(paths.get(i).format(g))
+                    .append(" (长度=").append(paths.get(i).length).append(")\n");
+        if (paths.size() < limit) sb.append("（共找到 ").append(paths.size()).append(" 条路径）\n");
+        if (k > MAX_PATHS) sb.append("（k 超过上限，只计算前 ").append(MAX_PATHS).append(" 条）\n");
+        return sb.toString();
+    }
+
+    // 两端单词都必须给出且在图中，否则返回提示信息
+    private String checkPathQuery(String word1, String word2) {
+        if (word1 == null || word1.trim().isEmpty() || word2 == null || word2.trim().isEmpty())
+            return "请输入两个单词！";
+        try {
+            word1 = normalize(word1);
+            word2 = normalize(word2);
+        } catch (IllegalArgumentException ex) {
+            return ex.getMessage();
+        }
+        CompactGraph g = snapshot();
+        if (g.id(word1) < 0) return "No " + word1 + " in the graph!";
+        if (g.id(word2) < 0) return "No " + word2 + " in the graph!";
+        return null;
+    }
+
+    private static String formatPath(CompactGraph g, ShortestPaths.Tree tree, int t) {
+        if (!tree.reachable(t)) return "不可达!";
+        return "最短路径: " + String.join(" -> ", tree.path(g, t)) + "，长度=" + tree.dist[t];
+    }
+    private static String oneToAllReport(CompactGraph g, ShortestPaths.Tree tree) {
+        String word1 = g.words[tree.source];
+        StringBuilder sb = new StringBuilder();
+        for (int t : g.lexOrder) {
+            if (t == tree.source) continue;
+            sb.append("从 ").append(word1).append(" 到 ").append(g.words[t]).append("：");
+            if (!tree.reachable(t)) {
+                sb.append("不可达\n");
+            } else {
+                sb.append(String.join(" -> ", tree.path(g, t)))
+                        .append(" (长度=").append(tree.dist[t]).append(")\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 批量查询桥接词：pairs 中每项为 {word1, word2}，结果按输入顺序返回，
+     * 与逐个调用 queryBridgeWords 的结果相同。
+     * 按起点分组，每个不同的起点只扫描一次两跳出边，回答它的所有终点；各组并行执行。
+     */
+    public List<String> queryBridgeWordsBatch(List<String[]> pairs) {
+        CompactGraph g = snapshot();
+        String[] results = new String[pairs.size()];
+        String[][] words = normalizePairs(pairs, results);
+        int[] targets = new int[pairs.size()];
+        Map<Integer, List<Integer>> bySource = groupBySource(g, words, targets, results, false,
+                (w1, w2) -> w1 == null || w2 == null ? "请输入两个单词！" : cachedBridgeWords(w1, w2));
+        bySource.entrySet().parallelStream().forEach(group -> {
+            int src = group.getKey();
+            Set<Integer> wanted = new HashSet<>();
+            for (int i : group.getValue()) wanted.add(targets[i]);
+            Map<Integer, List<String>> bridgesTo = new HashMap<>();
+            for (int e = g.offsets[src]; e < g.offsets[src + 1]; e++) {
+                int mid = g.targets[e];
+                for (int f = g.offsets[mid]; f < g.offsets[mid + 1]; f++)
+                    if (wanted.contains(g.targets[f]))
+                        bridgesTo.computeIfAbsent(g.targets[f], k -> new ArrayList<>()).add(g.words[mid]);
+            }
+            for (int i : group.getValue()) {
+                List<String> bridges = bridgesTo.getOrDefault(targets[i], Collections.emptyList());
+                results[i] = formatBridgeWords(words[i][0], words[i][1], new ArrayList<>(bridges));
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 批量计算最短路径：pairs 中每项为 {word1, word2}（word2 可为空），结果按输入顺序返回，
+     * 与逐个调用 calcShortestPath 的结果相同。
+     * 按起点分组，每个不同的起点只运行一次 Dijkstra（所有终点出队即停止）；各组并行执行。
+     */
+    public List<String> calcShortestPathBatch(List<String[]> pairs) {
+        CompactGraph g = snapshot();
+        GraphAnalytics index = analytics();
+        String[] results = new String[pairs.size()];
+        String[][] words = normalizePairs(pairs, results);
+        int[] targets = new int[pairs.size()];
+        Map<Integer, List<Integer>> bySource = groupBySource(g, words, targets, results, true,
+                (w1, w2) -> w1 == null ? "请输入起点单词！" : cachedShortestPath(w1, w2 == null ? "" : w2));
+        bySource.entrySet().parallelStream().forEach(group -> {
+            BitSet reachable = new BitSet();
+            boolean all = false;
+            for (int i : group.getValue()) {
+                if (words[i][1] == null) all = true;
+                else if (index.reachable(group.getKey(), targets[i])) reachable.set(targets[i]);
+            }
+            // 终点全部不可达时不运行 Dijkstra
+            ShortestPaths.Tree tree = all || !reachable.isEmpty()
+                    ? ShortestPaths.dijkstra(g, group.getKey(), all ? null : reachable)
+                    : null;
+            String report = all ? oneToAllReport(g, tree) : null;
+            for (int i : group.getValue()) {
+                results[i] = words[i][1] == null
+                        ? report : tree == null ? "不可达!" : formatPath(g, tree, targets[i]);
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 每个查询的两个单词各归一化一次：{w1, w2}，未给出（null 或空白）时为 null；
+     * 输入不是单个单词的查询直接把提示信息写入 results。
+     */
+    private String[][] normalizePairs(List<String[]> pairs, String[] results) {
+        String[][] words = new String[pairs.size()][];
+        for (int i = 0; i < words.length; i++) {
+            String w1 = pairs.get(i)[0], w2 = pairs.get(i)[1];
+            try {
+                words[i] = new String[]{isBlank(w1) ? null : normalize(w1), isBlank(w2) ? null : normalize(w2)};
+            } catch (IllegalArgumentException ex) {
+                words[i] = new String[2];
+                results[i] = ex.getMessage();
+            }
+        }
+        return words;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
+    /**
+     * 把有效查询按起点编号分组，终点编号写入 targets（未给出终点时为 -1）；words 为归一化后的单词。
+     * results 中已有提示信息的查询跳过；其余输入不合法或单词不在图中的查询直接交给 single 得到提示信息，
+     * 不参与分组（这些情况 single 会在搜索前立即返回）。
+     */
+    private static Map<Integer, List<Integer>> groupBySource(CompactGraph g, String[][] words, int[] targets,
+                                                             String[] results, boolean targetOptional,
+                                                             BinaryOperator<String> single) {
+        Map<Integer, List<Integer>> bySource = new HashMap<>();
+        for (int i = 0; i < words.length; i++) {
+            if (results[i] != null) continue;
+            String w1 = words[i][0], w2 = words[i][1];
+            int src = w1 == null ? -1 : g.id(w1);
+            targets[i] = w2 == null ? -1 : g.id(w2);
+            boolean w2Ok = w2 == null ? targetOptional : targets[i] >= 0;
+            if (src < 0 || !w2Ok) {
+                results[i] = single.apply(w1, w2);
+                continue;
+            }
+            bySource.computeIfAbsent(src, k -> new ArrayList<>()).add(i);
+        }
+        return bySource;
+    }
+
+    /**
+     * 计算 PageRank：取当前快照上的全图结果（d = 0.85，迭代 100 次，按出边权重分配，
+     * 悬挂节点的 PR 均摊给所有节点），见 CompactGraph.pageRank()；单词不在图中时返回 0，
+     * 输入不是单个单词时抛出 IllegalArgumentException（见 normalize）。
+     */
+    public double calPageRank(String word) {
+        if (word == null) return 0;
+        CompactGraph g = snapshot();
+        int id = g.id(normalize(word));
+        if (id < 0) return 0;
+        // 全图 PR 按版本缓存，见 CompactGraph.pageRank()
+        return g.pageRank()[id];
+    }
+
+    /**
+     * 随机游走：从随机节点出发，按权重选出边（与 PPR 的 Monte Carlo 游走共用 CompactGraph.sampleEdge），
+     * 重复经过某条边或走到无出边的节点时停止；图为空时返回空串。
+     * k 阶上下文模式下起点输出完整的 k 个单词，之后每一步只输出新上下文的最后一个单词。
+     */
+    public String randomWalk(Random rand) {
+        if (isEmpty()) return "";
+        CompactGraph g = snapshot();
+        int cur = rand.nextInt(g.size());
+        StringBuilder walk = new StringBuilder(g.words[cur]);
+        BitSet seenEdges = new BitSet(g.edgeCount());
+        while (true) {
+            int e = g.sampleEdge(cur, rand);
+            if (e < 0 || seenEdges.get(e)) break;
+            seenEdges.set(e);
+            cur = g.targets[e];
+            walk.append(" ").append(lastToken(g.words[cur]));
+        }
+        return walk.toString();
+    }
+
+    // 相关词查询的默认精度：Monte Carlo 的单点误差 / Forward Push 的推送阈值
+    private static final double PPR_MC_EPSILON = 0.01;
+    private static final double PPR_PUSH_EPSILON = 1e-6;
+
+    /** 与 word 最相关的 k 个词（个性化 PageRank），push 为 true 时用 Forward Push，否则用 Monte Carlo */
+    public String relatedWords(String word, int k, boolean push) {
+        if (word == null || word.trim().isEmpty()) return "请输入单词！";
+        String w;
+        try {
+            w = normalize(word);
+        } catch (IllegalArgumentException ex) {
+            return ex.getMessage();
+        }
+        CompactGraph g = snapshot();
+        int seed = g.id(w);
+        if (seed < 0) return "No " + w + " in the graph!";
+        long start = System.nanoTime();
+        PersonalizedPageRank.Result r = personalizedPageRank(g, seed, push);
+        long micros = (System.nanoTime() - start) / 1000;
+        StringBuilder sb = new StringBuilder();
+        sb.append("== 与 ").append(w).append(" 最相关的词（")
+                .append(push ? "Forward Push，估计值偏低，" : "Monte Carlo，95% 置信度下")
+                .append("误差 ≤ ").append(String.format("%.4g", r.error))
+                .append("，耗时 ").append(micros).append(" µs）==\n");
+        List<GraphRankIndex.RankEntry> top = r.top(k);
+        for (int i = 0; i < top.size(); i++) sb.append(i + 1).append(". ").append(top.get(i)).append('\n');
+        return sb.toString();
+    }
+
+    /** seed 在当前快照上的个性化 PageRank */
+    PersonalizedPageRank.Result personalizedPageRank(CompactGraph g, int seed, boolean push) {
+        return push
+                ? PersonalizedPageRank.forwardPush(g, seed, PPR_PUSH_EPSILON)
+                : PersonalizedPageRank.monteCarlo(g, seed, PersonalizedPageRank.walksFor(PPR_MC_EPSILON),
+                        System.nanoTime());
+    }
+
+    /** PageRank 最高的 k 个单词 */
+    public List<GraphRankIndex.RankEntry> topPageRank(int k) {
+        return rankIndex().topPageRank(k);
+    }
+
+    /** 权重最大的 k 条边（标签形如 "a -> b"） */
+    public List<GraphRankIndex.RankEntry> topEdges(int k) {
+        return rankIndex().topEdges(k);
+    }
+
+    /** 出度最高的 k 个单词 */
+    public List<GraphRankIndex.RankEntry> topOutDegree(int k) {
+        return rankIndex().topOutDegree(k);
+    }
+
+    /** PageRank 不低于 min 的所有单词（降序） */
+    public List<GraphRankIndex.RankEntry> pageRankAtLeast(double min) {
+        return rankIndex().pageRankAtLeast(min);
+    }
+
+    /** 权重不低于 min 的所有边（降序） */
+    public List<GraphRankIndex.RankEntry> edgesWithWeightAtLeast(int min) {
+        return rankIndex().edgesWithWeightAtLeast(min);
+    }
+
+    /** 出度不低于 min 的所有单词（降序） */
+    public List<GraphRankIndex.RankEntry> outDegreeAtLeast(int min) {
+        return rankIndex().outDegreeAtLeast(min);
+    }
+
+    /** 结果缓存的命中率等统计 */
+    public String cacheStats() {
+        return cache.stats();
+    }
+
+    /** 当前图的分析摘要 */
+    public String graphAnalysis() {
+        if (isEmpty()) return "图为空，请先加载文本！";
+        return analytics().summary();
+    }
+
+    /** 保留的历史版本（最旧的在前），包括载入的快照文件 */
+    public synchronized List<GraphSnapshot> snapshotHistory() {
+        return new ArrayList<>(history);
+    }
+
+    /** 历史版本列表，序号从 1 开始 */
+    public synchronized String versionList() {
+        if (history.isEmpty()) return "尚无历史版本";
+        StringBuilder sb = new StringBuilder("== 历史版本 ==\n");
+        for (int i = 0; i < history.size(); i++) {
+            GraphSnapshot s = history.get(i);
+            int shared = s.sharedRows();
+            sb.append(String.format("%d. %s  节点=%d 边=%d%s  (%tF %<tT)%n", i + 1, s.label, s.size(), s.edgeCount,
+                    shared < 0 ? "" : " 与上一版本共享 " + shared + " 行", s.createdAt));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 比较历史中的两个版本（下标从 0 开始）：新增/删除的单词与边、权重变化最大的边、
+     * PageRank 变化最大的单词，每类最多列出 limit 条。
+     */
+    public String diffVersions(int from, int to, int limit) {
+        List<GraphSnapshot> h = snapshotHistory();
+        if (from < 0 || to < 0 || from >= h.size() || to >= h.size()) return "版本序号超出范围！";
+        GraphSnapshot a = h.get(from), b = h.get(to);
+        GraphSnapshot.DiffSummary d = new GraphSnapshot.DiffSummary(limit);
+        GraphSnapshot.diff(a, b, d);
+        StringBuilder sb = new StringBuilder();
+        sb.append("== ").append(a.label).append(" → ").append(b.label).append(" ==\n");
+        sb.append(String.format("新增单词 %d，删除单词 %d，新增边 %d，删除边 %d，权重变化的边 %d%n",
+                d.addedWords, d.removedWords, d.addedEdges, d.removedEdges, d.changedEdges));
+        appendList(sb, "新增单词", d.addedWordList, d.addedWords);
+        appendList(sb, "删除单词", d.removedWordList, d.removedWords);
+        appendList(sb, "新增边", d.addedEdgeList, d.addedEdges);
+        appendList(sb, "删除边", d.removedEdgeList, d.removedEdges);
+        appendList(sb, "权重变化最大的边", d.topChangedEdges(), d.changedEdges);
+        sb.append("== PageRank 变化最大的单词 ==\n");
+        for (GraphSnapshot.Mover m : GraphSnapshot.pageRankMovers(a, b, limit))
+            sb.append(String.format("%s %.4f → %.4f (%+.4f)%n", m.word(), m.before(), m.after(), m.delta()));
+        return sb.toString();
+    }
+
+    private static void appendList(StringBuilder sb, String title, List<String> items, int total) {
+        if (total == 0) return;
+        sb.append("== ").append(title).append(" ==\n");
+        for (String s : items) sb.append(s).append('\n');
+        if (total > items.size()) sb.append("…（共 ").append(total).append(" 项）\n");
+    }
+
+    /** 把最新版本保存到文件 */
+    public void saveSnapshot(Path file) throws IOException {
+        List<GraphSnapshot> h = snapshotHistory();
+        if (h.isEmpty()) throw new IllegalStateException("图为空，请先加载文本！");
+        h.getLast().save(file);
+    }
+
+    /** 从文件载入一个快照并加入历史（仅用于对比，不替换当前图） */
+    public GraphSnapshot loadSnapshot(Path file) throws IOException {
+        GraphSnapshot s;
+        synchronized (this) {
+            s = GraphSnapshot.load(file, history.isEmpty() ? null : history.getLast(), wordPool);
+            addSnapshot(s);
+        }
+        return s;
+    }
+
+    /** 从文件载入一个快照并把它作为当前图（快照本身记入历史，不再另建版本） */
+    public synchronized GraphSnapshot restoreSnapshot(Path file) throws IOException {
+        GraphSnapshot s = loadSnapshot(file);
+        replaceGraph(s.toCompact(graphVersion + 1, nodeOrder));
+        return s;
+    }
+}
@@ -2,24 +2,34 @@ import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.*;
 import java.util.List;
+import java.util.Random;
 
 /**
  * TextGraphAnalyzer: 从文本文件读取数据，构建有向加权图，并提供各种分析功能。
  * 变更：
  * 1. calcShortestPath 支持仅输入一个单词时，显示它到所有节点的最短路径。
  * 2. showDirectedGraph 方法签名改为带参：showDirectedGraph(Map<String,Map<String,Integer>> G)
+ * 3. 图数据与查询逻辑移入 TextGraph，本类只负责界面；带命令行参数启动时不打开窗口，
+ *    改由 BatchRunner 执行脚本文件中的查询（见 BatchRunner）。
+ * 4. showDirectedGraph 不再写死 dot.exe 路径与 graph.png，改由 GraphvizRenderer 通过管道渲染并缓存。
  */
 public class TextGraphAnalyzer extends JFrame {
-    // 图的数据结构：邻接表
-    private final Map<String, Map<String, Integer>> graph = new HashMap<>();
+    // 分析引擎：图数据与全部查询功能，界面只负责输入输出
+    private final TextGraph engine = new TextGraph();
     private JTextArea outputArea;
     private JLabel graphLabel;
+    // 按钮区；后台加载期间整体禁用，避免查询与替换图同时进行
+    private JPanel controls;
+    // Graphviz 渲染器，首次展示有向图时按配置创建
+    private transient GraphvizRenderer renderer;
 
     public TextGraphAnalyzer() {
         setTitle("文本图分析器");
@@ -41,48 +51,61 @@ public class TextGraphAnalyzer extends JFrame {
         JScrollPane graphScroll = new JScrollPane(graphLabel);
         panel.add(graphScroll, BorderLayout.CENTER);
         // 按钮区
-        panel.add(getControls(), BorderLayout.NORTH);
+        controls = getControls();
+        panel.add(controls, BorderLayout.NORTH);
         setContentPane(panel);
     }
 
     private JPanel getControls() {
         JPanel controls = new JPanel();
         String[] btnNames = {
-                "加载文本文件", "展示有向图",
+                "加载文本文件", "加载目录", "展示有向图", "浏览大图",
                 "查询桥接词", "生成新文本",
-                "最短路径", "计算PageRank", "随机游走"
+                "最短路径", "计算PageRank", "随机游走",
+                "Top-K 排行", "多条最短路径", "图分析", "相关词 (PPR)", "续写文本", "版本对比"
         };
         for (String name : btnNames) {
             JButton btn = new JButton(name);
             controls.add(btn);
             switch (name) {
                 case "加载文本文件": btn.addActionListener(e -> loadFile()); break;
+                case "加载目录":     btn.addActionListener(e -> loadDirectoryDialog()); break;
                 case "展示有向图":   btn.addActionListener(e -> showDirectedGraph()); break;
+                case "浏览大图":     btn.addActionListener(e -> graphViewerDialog()); break;
                 case "查询桥接词":   btn.addActionListener(e -> queryBridgeWordsDialog()); break;
                 case "生成新文本":   btn.addActionListener(e -> generateNewTextDialog()); break;
                 case "最短路径":     btn.addActionListener(e -> shortestPathDialog()); break;
                 case "计算PageRank": btn.addActionListener(e -> pageRankDialog()); break;
-                case "随机游走":     btn.addActionListener(e -> randomWalk()); break;
+                case "随机游走":     btn.addActionListener(e -> randomWalkDialog()); break;
+                case "Top-K 排行":   btn.addActionListener(e -> topKDialog()); break;
+                case "多条最短路径": btn.addActionListener(e -> multiPathDialog()); break;
+                case "图分析":       btn.addActionListener(e -> analyticsDialog()); break;
+                case "相关词 (PPR)": btn.addActionListener(e -> relatedWordsDialog()); break;
+                case "续写文本":     btn.addActionListener(e -> beamTextDialog()); break;
+                case "版本对比":     btn.addActionListener(e -> versionDialog()); break;
             }
         }
         return controls;
     }
 
     public static void main(String[] args) {
+        // 有命令行参数时走无界面的批处理模式
+        if (args.length > 0) {
+            System.exit(BatchRunner.run(args));
+        }
         SwingUtilities.invokeLater(() -> new TextGraphAnalyzer().setVisible(true));
     }
 
     /** 功能1：加载并构建图，生成 .dot 并展示内容 */
     private void loadFile() {
         JFileChooser chooser = new JFileChooser();
-        chooser.setFileFilter(new FileNameExtensionFilter("Text Files", "txt"));
+        chooser.setFileFilter(new FileNameExtensionFilter("Text Files (txt, gz, zip)", "txt", "gz", "zip"));
         if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
         File file = chooser.getSelectedFile();
         try {
-            String content = new String(Files.readAllBytes(file.toPath()));
-            buildGraph(content);
+            engine.loadFile(file.toPath());
             boolean ok = generateDotFile();
-            String msg = "已加载并构建图，节点数=" + graph.size()
+            String msg = "已加载并构建图，节点数=" + engine.size()
                     + (ok ? "，graph.dot 生成成功。" : "，graph.dot 生成失败！");
             outputArea.setText(msg);
             if (ok) {
@@ -102,28 +125,56 @@ public class TextGraphAnalyzer extends JFrame {
         }
     }
 
-    private void buildGraph(String raw) {
-        graph.clear();
-        String clean = raw.toLowerCase().replaceAll("[^a-z]+", " ");
-        String[] words = clean.trim().split("\\s+");
-        for (int i = 0; i < words.length - 1; i++) {
-            String a = words[i], b = words[i + 1];
-            graph.putIfAbsent(a, new HashMap<>());
-            graph.get(a).put(b, graph.get(a).getOrDefault(b, 0) + 1);
-            graph.putIfAbsent(b, new HashMap<>());
-        }
+    /** 功能1（扩展）：加载整个目录下匹配 glob 的文件，后台并行读取并显示进度 */
+    private void loadDirectoryDialog() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path dir = chooser.getSelectedFile().toPath();
+        String glob = JOptionPane.showInputDialog(this, "文件匹配模式 (glob):", "*.{txt,gz,zip}");
+        if (glob == null || glob.trim().isEmpty()) return;
+        boolean link = JOptionPane.showConfirmDialog(this, "是否连接相邻文件首尾的单词？", "跨文件连边",
+                JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION;
+        outputArea.setText("正在加载 " + dir + " ...");
+        // 加载会替换引擎中的图，期间禁用全部按钮（TextGraph 要求加载与查询不重叠）
+        setControlsEnabled(false);
+        new SwingWorker<CorpusLoader.Result, String>() {
+            @Override
+            protected CorpusLoader.Result doInBackground() throws Exception {
+                return engine.loadDirectory(dir, glob.trim(), link, (done, total, bytes, mbps) ->
+                        publish(String.format("已处理 %d/%d 个文件，%.1f MB，%.1f MB/s", done, total, bytes / 1e6, mbps)));
+            }
+
+            @Override
+            protected void process(List<String> chunks) {
+                outputArea.setText(chunks.getLast());
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    CorpusLoader.Result r = get();
+                    outputArea.setText(String.format("已加载 %d 个文件（%.1f MB，用时 %.1f 秒，%.1f MB/s），节点数=%d",
+                            r.files, r.bytes / 1e6, r.nanos / 1e9, r.mbPerSec(), engine.size()));
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(TextGraphAnalyzer.this, "加载失败: " + cause.getMessage(),
+                            "错误", JOptionPane.ERROR_MESSAGE);
+                } finally {
+                    setControlsEnabled(true);
+                }
+            }
+        }.execute();
+    }
+
+    private void setControlsEnabled(boolean enabled) {
+        for (Component c : controls.getComponents()) c.setEnabled(enabled);
     }
 
     private boolean generateDotFile() {
         try {
-            StringBuilder dot = new StringBuilder("digraph G {\n");
-            for (String u : graph.keySet()) {
-                for (Map.Entry<String, Integer> e : graph.get(u).entrySet()) {
-                    dot.append(String.format("  \"%s\" -> \"%s\" [label=%d];%n", u, e.getKey(), e.getValue()));
-                }
-            }
-            dot.append("}\n");
-            Files.write(Paths.get("graph.dot"), dot.toString().getBytes());
+            Files.write(Paths.get("graph.dot"), engine.toDot().getBytes());
             return true;
         } catch (IOException ex) {
             ex.printStackTrace();
@@ -135,21 +186,93 @@ public class TextGraphAnalyzer extends JFrame {
      * 功能2：渲染并显示有向图
      */
     private void showDirectedGraph() {
+        if (engine.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "图为空，请先加载文本！", "错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         try {
-            // 重新生成 DOT
-            generateDotFile();
-            String dotExe = "C:\\Program Files (x86)\\Graphviz2.38\\bin\\dot.exe";
-            Process p = new ProcessBuilder(dotExe, "-Tpng", "graph.dot", "-o", "graph.png").start();
-            p.waitFor();
-            BufferedImage img = ImageIO.read(new File("graph.png"));
-            graphLabel.setIcon(new ImageIcon(img));
-            String msg = "有向图已渲染并显示 (graph.png)。";
-            outputArea.setText(msg);
-            JOptionPane.showMessageDialog(this, msg, "渲染完成", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "渲染图形失败: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            if (renderer == null) renderer = GraphvizRenderer.fromConfig();
+        } catch (IOException | IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        GraphvizRenderer r = renderer;
+        CompactGraph g = engine.snapshot();
+        outputArea.setText("正在渲染（" + GraphvizRenderer.layoutFor(g.size(), g.edgeCount()) + " 布局）...");
+        // 渲染在后台线程进行，界面不会卡住；同一版本的图再次展示时直接取缓存。
+        // DOT 由上面取得的快照 g 生成：渲染期间加载了新图时，缓存键与图片仍属于同一版本
+        new SwingWorker<BufferedImage, Void>() {
+            private GraphvizRenderer.Render render;
+
+            @Override
+            protected BufferedImage doInBackground() throws Exception {
+                render = r.render(g.version, g.size(), g.edgeCount(), () -> TextGraph.toDot(g),
+                        GraphvizRenderer.Format.PNG);
+                BufferedImage img = ImageIO.read(new ByteArrayInputStream(render.data));
+                if (img == null) throw new IOException("Graphviz 输出的不是有效的 PNG");
+                return img;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    graphLabel.setIcon(new ImageIcon(get()));
+                    outputArea.setText(render.cached
+                            ? "有向图未变化，显示缓存的渲染结果。"
+                            : String.format("有向图已渲染并显示（%s 布局，用时 %.1f 秒）。", render.layout, render.nanos / 1e9));
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    outputArea.setText("渲染图形失败: " + cause.getMessage());
+                    JOptionPane.showMessageDialog(TextGraphAnalyzer.this, "渲染图形失败: " + cause.getMessage(),
+                            "错误", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /** 功能2（扩展）：可平移缩放的大图浏览器，在单独的窗口中打开 */
+    private void graphViewerDialog() {
+        if (engine.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "图为空，请先加载文本！", "错误", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        // 在事件线程上取得当前版本的排行索引，浏览器只显示这一版本；计算期间禁用按钮，不与加载重叠
+        GraphRankIndex ranks = engine.rankIndex();
+        outputArea.setText("正在计算布局与空间索引 ...");
+        setControlsEnabled(false);
+        new SwingWorker<GraphViewer.Index, Void>() {
+            @Override
+            protected GraphViewer.Index doInBackground() {
+                return new GraphViewer.Index(ranks);
+            }
+
+            @Override
+            protected void done() {
+                setControlsEnabled(true);
+                try {
+                    GraphViewer viewer = new GraphViewer(get());
+                    JFrame frame = new JFrame("图浏览器（" + ranks.graph.size() + " 个节点）");
+                    frame.setContentPane(viewer);
+                    frame.pack();
+                    frame.setLocationRelativeTo(TextGraphAnalyzer.this);
+                    frame.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+                    frame.addWindowListener(new WindowAdapter() {
+                        @Override
+                        public void windowClosed(WindowEvent e) {
+                            viewer.close();
+                        }
+                    });
+                    frame.setVisible(true);
+                    outputArea.setText("拖动平移，滚轮缩放；缩小时只显示 PageRank 较高的节点与权重较大的边。");
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(TextGraphAnalyzer.this, "打开浏览器失败: " + cause.getMessage(),
+                            "错误", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
 
     /** 功能3：查询桥接词 */
@@ -161,31 +284,7 @@ public class TextGraphAnalyzer extends JFrame {
         JOptionPane.showMessageDialog(this, res, "查询桥接词结果", JOptionPane.INFORMATION_MESSAGE);
     }
     public String queryBridgeWords(String word1, String word2) {
-        if (word1 == null || word2 == null || word1.trim().isEmpty() || word2.trim().isEmpty()) {
-            return "请输入两个单词！";
-        }
-        word1 = word1.toLowerCase();
-        word2 = word2.toLowerCase();
-        boolean has1 = graph.containsKey(word1), has2 = graph.containsKey(word2);
-        if (!has1 && !has2) return "No " + word1 + " and " + word2 + " in the graph!";
-        if (!has1) return "No " + word1 + " in the graph!";
-        if (!has2) return "No " + word2 + " in the graph!";
-        Set<String> bridges = new HashSet<>();
-        for (String mid : graph.get(word1).keySet())
-            if (graph.get(mid).containsKey(word2))
-                bridges.add(mid);
-        if (bridges.isEmpty())
-            return "No bridge words from \"" + word1 + "\" to \"" + word2 + "\"!";
-        List<String> list = new ArrayList<>(bridges);
-        Collections.sort(list);
-        if (list.size() == 1) {
-            return "The bridge words from \"" + word1 + "\" to \"" + word2 + "\" is: \"" + list.getFirst() + "\"";
-        } else {
-            StringJoiner sj = new StringJoiner(", ");
-            for (int i = 0; i < list.size() - 1; i++) sj.add(list.get(i));
-            return "The bridge words from \"" + word1 + "\" to \"" + word2 + "\" are: "
-                    + sj + ", and " + list.getLast();
-        }
+        return engine.queryBridgeWords(word1, word2);
     }
 
     /** 功能4：根据桥接词生成新文本 */
@@ -196,27 +295,33 @@ public class TextGraphAnalyzer extends JFrame {
         JOptionPane.showMessageDialog(this, res, "生成新文本结果", JOptionPane.INFORMATION_MESSAGE);
     }
     public String generateNewText(String inputText) {
-        if (inputText == null || inputText.trim().isEmpty()) return "";
-        String clean = inputText.toLowerCase().replaceAll("[^a-z]+", " ").trim();
-        String[] words = clean.split("\\s+");
-        List<String> result = new ArrayList<>();
-        Random rand = new Random();
-        for (int i = 0; i < words.length - 1; i++) {
-            String w1 = words[i], w2 = words[i + 1];
-            result.add(w1);
-            Set<String> bridges = new HashSet<>();
-            if (graph.containsKey(w1)) {
-                for (String mid : graph.get(w1).keySet())
-                    if (graph.get(mid).containsKey(w2))
-                        bridges.add(mid);
-            }
-            if (!bridges.isEmpty()) {
-                List<String> b = new ArrayList<>(bridges);
-                result.add(b.get(rand.nextInt(b.size())));
-            }
+        return engine.generateNewText(inputText);
+    }
+
+    /** 功能4（扩展）：束搜索续写 / 补全文本 */
+    private void beamTextDialog() {
+        Object[] modes = {"续写", "补全"};
+        int mode = JOptionPane.showOptionDialog(this, "选择模式", "续写文本", JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE, null, modes, modes[0]);
+        if (mode < 0) return;
+        String input = JOptionPane.showInputDialog(this, mode == 0 ? "输入开头:" : "输入要补全的文本:");
+        if (input == null) return;
+        String len = JOptionPane.showInputDialog(this, mode == 0 ? "续写词数:" : "相邻两词间最多插入词数:",
+                mode == 0 ? "10" : "2");
+        if (len == null) return;
+        String width = JOptionPane.showInputDialog(this, "束宽:", "5");
+        if (width == null) return;
+        String prw = JOptionPane.showInputDialog(this, "PageRank 权重（0 表示只看边权）:", "0");
+        if (prw == null) return;
+        String res;
+        try {
+            int n = Integer.parseInt(len.trim()), b = Integer.parseInt(width.trim());
+            double w = Double.parseDouble(prw.trim());
+            res = mode == 0 ? engine.continueText(input, n, b, w) : engine.fillText(input, n, b, w);
+        } catch (NumberFormatException ex) {
+            res = "参数格式错误！";
         }
-        result.add(words[words.length - 1]);
-        return String.join(" ", result);
+        outputArea.setText(res);
     }
 
     /** 功能5：计算最短路径，支持只输入一个单词时批量输出 */
@@ -228,79 +333,33 @@ public class TextGraphAnalyzer extends JFrame {
         JOptionPane.showMessageDialog(this, res, "最短路径结果", JOptionPane.INFORMATION_MESSAGE);
     }
     public String calcShortestPath(String word1, String word2) {
-        if (word1 == null || word1.trim().isEmpty()) return "请输入起点单词！";
-        word1 = word1.toLowerCase();
-        if (!graph.containsKey(word1)) return "No " + word1 + " in the graph!";
-
-        // 若未输入终点，则对所有节点批量计算
-        if (word2 == null || word2.trim().isEmpty()) {
-            // Dijkstra 一次，得到 dist 和 prev
-            Map<String,Integer> dist = new HashMap<>();
-            Map<String,String> prev = new HashMap<>();
-            for (String v : graph.keySet()) dist.put(v, Integer.MAX_VALUE);
-            dist.put(word1, 0);
-            PriorityQueue<String> pq = new PriorityQueue<>(Comparator.comparingInt(dist::get));
-            pq.add(word1);
-            while (!pq.isEmpty()) {
-                String u = pq.poll();
-                for (var e : graph.get(u).entrySet()) {
-                    String v = e.getKey(); int w = e.getValue();
-                    if (dist.get(u) + w < dist.get(v)) {
-                        dist.put(v, dist.get(u) + w);
-                        prev.put(v, u);
-                        pq.add(v);
-                    }
-                }
-            }
-            // 构造输出
-            StringBuilder sb = new StringBuilder();
-            for (String target : graph.keySet()) {
-                if (target.equals(word1)) continue;
-                sb.append("从 ").append(word1).append(" 到 ").append(target).append("：");
-                if (dist.get(target) == Integer.MAX_VALUE) {
-                    sb.append("不可达\n");
-                } else {
-                    List<String> path = new ArrayList<>();
-                    for (String cur = target; cur != null; cur = prev.get(cur)) path.add(cur);
-                    Collections.reverse(path);
-                    sb.append(String.join(" -> ", path))
-                            .append(" (长度=").append(dist.get(target)).append(")\n");
-                }
-            }
-            return sb.toString();
-        }
+        return engine.calcShortestPath(word1, word2);
+    }
 
-        // 否则按原逻辑计算单对最短路径
-        word2 = word2.toLowerCase();
-        if (!graph.containsKey(word2)) return "No " + word2 + " in the graph!";
-        Map<String,Integer> dist = new HashMap<>();
-        Map<String,String> prev = new HashMap<>();
-        for (String v : graph.keySet()) dist.put(v, Integer.MAX_VALUE);
-        dist.put(word1, 0);
-        PriorityQueue<String> pq = new PriorityQueue<>(Comparator.comparingInt(dist::get));
-        pq.add(word1);
-        while (!pq.isEmpty()) {
-            String u = pq.poll();
-            if (u.equals(word2)) break;
-            for (var e : graph.get(u).entrySet()) {
-                String v = e.getKey(); int w = e.getValue();
-                if (dist.get(u) + w < dist.get(v)) {
-                    dist.put(v, dist.get(u) + w);
-                    prev.put(v, u);
-                    pq.add(v);
-                }
+    /** 功能5（扩展）：前 k 条最短路径 / 全部等长最短路径 */
+    private void multiPathDialog() {
+        String w1 = JOptionPane.showInputDialog(this, "输入起点 word1:");
+        String w2 = JOptionPane.showInputDialog(this, "输入终点 word2:");
+        String k = JOptionPane.showInputDialog(this, "输入 k（留空则列出全部等长最短路径）:");
+        String res;
+        if (k == null || k.trim().isEmpty()) {
+            res = engine.calcAllShortestPaths(w1, w2);
+        } else {
+            try {
+                res = engine.calcKShortestPaths(w1, w2, Integer.parseInt(k.trim()));
+            } catch (NumberFormatException ex) {
+                res = "k 必须是整数！";
             }
         }
-        if (dist.get(word2) == Integer.MAX_VALUE) return "不可达!";
-        List<String> path = new ArrayList<>();
-        for (String cur = word2; cur != null; cur = prev.get(cur)) path.add(cur);
-        Collections.reverse(path);
-        return "最短路径: " + String.join(" -> ", path) + "，长度=" + dist.get(word2);
+        outputArea.setText(res);
+        JOptionPane.showMessageDialog(this, new JScrollPane(new JTextArea(res, 20, 60)),
+                "多条最短路径结果", JOptionPane.INFORMATION_MESSAGE);
     }
 
     /**
      * 功能6：计算 PageRank
-     *  仅对出度>0 的节点集合做迭代，剔除悬挂节点，使结果与示例 new PR≈0.1771 一致。
+     *  全图参与迭代（d = 0.85，100 轮，每轮按出边权重推送），悬挂节点的 PR 每轮均摊给所有节点，
+     *  见 CompactGraph.pageRank()。
      */
     private void pageRankDialog() {
         String w = JOptionPane.showInputDialog(this, "输入单词计算PR:");
@@ -308,84 +367,147 @@ public class TextGraphAnalyzer extends JFrame {
         if (w == null || w.trim().isEmpty()) {
             res = "请输入单词！";
         } else {
-            double pr = calPageRank(w.toLowerCase());
-            res = w + " PR=" + String.format("%.4f", pr);
+            try {
+                res = w + " PR=" + String.format("%.4f", calPageRank(w));
+            } catch (IllegalArgumentException ex) {
+                res = ex.getMessage();
+            }
         }
         outputArea.setText(res);
         JOptionPane.showMessageDialog(this, res, "PageRank 结果", JOptionPane.INFORMATION_MESSAGE);
     }
     public double calPageRank(String word) {
-        if (!graph.containsKey(word)) return 0;
-        final double d = 0.85;
-        int N = graph.size();
-        // 初始化：每个节点的 PR = 1/N
-        Map<String, Double> pr = new HashMap<>(), prNew = new HashMap<>();
-        graph.keySet().forEach(v -> pr.put(v, 1.0 / N));
+        return engine.calPageRank(word);
+    }
 
-        // 迭代计算
-        for (int iter = 0; iter < 100; iter++) {
-            // 1. 计算所有悬挂节点的总 PR
-            double danglingSum = 0;
-            for (String u : graph.keySet()) {
-                if (graph.get(u).isEmpty()) {
-                    danglingSum += pr.get(u);
-                }
-            }
+    /** 功能7：随机游走 */
+    private void randomWalkDialog() {
+        if (engine.isEmpty()) return;
+        String res = engine.randomWalk(new Random());
+        outputArea.setText(res);
+        JOptionPane.showMessageDialog(this, res, "随机游走结果", JOptionPane.INFORMATION_MESSAGE);
+        try { Files.write(Paths.get("random_walk.txt"), res.getBytes()); }
+        catch (IOException e) { e.printStackTrace(); }
+    }
 
-            // 2. 对每个节点 v 计算新的 PR
-            for (String v : graph.keySet()) {
-                // 来自入链的贡献
-                double sum = 0;
-                for (String u : graph.keySet()) {
-                    if (graph.get(u).containsKey(v)) {
-                        double weight = graph.get(u).get(v);
-                        double outSum = graph.get(u).values().stream().mapToInt(x -> x).sum();
-                        sum += pr.get(u) * (weight / outSum);
-                    }
-                }
-                // 悬挂节点均摊 + 随机跳转
-                double danglingContribution = danglingSum / N;
-                double teleport = (1 - d) / N;
-                prNew.put(v, teleport + d * (sum + danglingContribution));
-            }
+    /** 功能7（扩展）：以某个词为种子的个性化 PageRank，列出最相关的词 */
+    private void relatedWordsDialog() {
+        String w = JOptionPane.showInputDialog(this, "输入种子单词:");
+        if (w == null) return;
+        String k = JOptionPane.showInputDialog(this, "输入 K:", "10");
+        if (k == null) return;
+        Object[] methods = {"Monte Carlo", "Forward Push"};
+        int m = JOptionPane.showOptionDialog(this, "选择算法", "相关词 (PPR)", JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE, null, methods, methods[0]);
+        if (m < 0) return;
+        String res;
+        try {
+            res = engine.relatedWords(w, Integer.parseInt(k.trim()), m == 1);
+        } catch (NumberFormatException ex) {
+            res = "K 必须是整数！";
+        }
+        outputArea.setText(res);
+    }
 
-            // 3. 准备下一轮
-            pr.putAll(prNew);
+    /** 功能8：Top-K 排行（PageRank 最高的单词、权重最大的边、出度最高的单词） */
+    private void topKDialog() {
+        Object[] modes = {"前 K 名", "不低于阈值"};
+        int mode = JOptionPane.showOptionDialog(this, "选择排行方式", "Top-K 排行", JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE, null, modes, modes[0]);
+        if (mode == 1) {
+            thresholdDialog();
+            return;
         }
+        if (mode != 0) return;
+        String in = JOptionPane.showInputDialog(this, "输入 K:", "10");
+        if (in == null) return;
+        int k;
+        try {
+            k = Integer.parseInt(in.trim());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "K 必须是整数！", "错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        appendRanking(sb, "PageRank 最高的单词", engine.topPageRank(k));
+        appendRanking(sb, "权重最大的边", engine.topEdges(k));
+        appendRanking(sb, "出度最高的单词", engine.topOutDegree(k));
+        outputArea.setText(sb.toString());
+    }
 
-        // 返回指定单词的 PR 值
-        return pr.get(word);
+    // 阈值查询最多列出的条数，其余只给出总数
+    private static final int RANK_LIMIT = 1000;
+
+    /** 阈值查询：PageRank / 边权重 / 出度不低于给定值的全部结果（由排行索引二分查找得到） */
+    private void thresholdDialog() {
+        Object[] kinds = {"PageRank", "边权重", "出度"};
+        int kind = JOptionPane.showOptionDialog(this, "按哪一项筛选？", "阈值查询", JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE, null, kinds, kinds[0]);
+        if (kind < 0) return;
+        String in = JOptionPane.showInputDialog(this, kinds[kind] + " 不低于:", kind == 0 ? "0.01" : "2");
+        if (in == null) return;
+        List<GraphRankIndex.RankEntry> list;
+        try {
+            list = kind == 0 ? engine.pageRankAtLeast(Double.parseDouble(in.trim()))
+                    : kind == 1 ? engine.edgesWithWeightAtLeast(Integer.parseInt(in.trim()))
+                    : engine.outDegreeAtLeast(Integer.parseInt(in.trim()));
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, kind == 0 ? "阈值必须是数字！" : "阈值必须是整数！",
+                    "错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        appendRanking(sb, kinds[kind] + " 不低于 " + in.trim() + "（共 " + list.size() + " 项）",
+                list.subList(0, Math.min(list.size(), RANK_LIMIT)));
+        if (list.size() > RANK_LIMIT) sb.append("（仅列出前 ").append(RANK_LIMIT).append(" 项）\n");
+        outputArea.setText(sb.toString());
     }
 
+    private static void appendRanking(StringBuilder sb, String title, List<GraphRankIndex.RankEntry> list) {
+        sb.append("== ").append(title).append(" ==\n");
+        for (int i = 0; i < list.size(); i++)
+            sb.append(i + 1).append(". ").append(list.get(i)).append('\n');
+    }
 
-    /** 功能7：随机游走 */
-    private void randomWalk() {
-        if (graph.isEmpty()) return;
-        List<String> nodes = new ArrayList<>(graph.keySet());
-        Random rand = new Random();
-        String cur = nodes.get(rand.nextInt(nodes.size()));
-        StringBuilder walk = new StringBuilder(cur);
-        Set<String> seenEdges = new HashSet<>();
-        while (true) {
-            var outs = graph.get(cur);
-            if (outs.isEmpty()) break;
-            int sum = outs.values().stream().mapToInt(x->x).sum(), acc = 0;
-            int r = rand.nextInt(sum);
-            String next = null;
-            for (var e : outs.entrySet()) {
-                acc += e.getValue();
-                if (r < acc) { next = e.getKey(); break; }
+    /** 功能9：图分析（强连通分量、度数分布） */
+    private void analyticsDialog() {
+        outputArea.setText(engine.graphAnalysis() + "\n" + engine.cacheStats());
+    }
+
+    // 版本对比中每类变化最多列出的条数
+    private static final int DIFF_LIMIT = 20;
+
+    /** 功能10：历史版本对比、保存与载入快照 */
+    private void versionDialog() {
+        Object[] actions = {"对比版本", "保存当前版本", "载入快照"};
+        int a = JOptionPane.showOptionDialog(this, engine.versionList(), "版本对比", JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE, null, actions, actions[0]);
+        try {
+            if (a == 0) {
+                int n = engine.snapshotHistory().size();
+                String from = JOptionPane.showInputDialog(this, "旧版本序号:", Math.max(1, n - 1));
+                if (from == null) return;
+                String to = JOptionPane.showInputDialog(this, "新版本序号:", n);
+                if (to == null) return;
+                outputArea.setText(engine.diffVersions(Integer.parseInt(from.trim()) - 1, Integer.parseInt(to.trim()) - 1,
+                        DIFF_LIMIT));
+            } else if (a == 1 || a == 2) {
+                JFileChooser chooser = new JFileChooser();
+                chooser.setFileFilter(new FileNameExtensionFilter("Graph Snapshot (tgs)", "tgs"));
+                if (a == 1) {
+                    if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+                    engine.saveSnapshot(chooser.getSelectedFile().toPath());
+                    outputArea.setText("已保存到 " + chooser.getSelectedFile());
+                } else {
+                    if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+                    engine.loadSnapshot(chooser.getSelectedFile().toPath());
+                    outputArea.setText(engine.versionList());
+                }
             }
-            String edge = cur + "->" + next;
-            if (seenEdges.contains(edge)) break;
-            seenEdges.add(edge);
-            walk.append(" ").append(next);
-            cur = next;
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "序号必须是整数！", "错误", JOptionPane.ERROR_MESSAGE);
+        } catch (IOException | IllegalStateException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
         }
-        String res = walk.toString();
-        outputArea.setText(res);
-        JOptionPane.showMessageDialog(this, res, "随机游走结果", JOptionPane.INFORMATION_MESSAGE);
-        try { Files.write(Paths.get("random_walk.txt"), res.getBytes()); }
-        catch (IOException e) { e.printStackTrace(); }
     }
 }
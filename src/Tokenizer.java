@@ -0,0 +1,328 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Tokenizer: 可配置的分词与归一化流水线（切词 → 小写 → 词干化 → 停用词过滤）。
+ * Tokenizer 本身只保存不可变的配置，线程安全；真正的流式切分由 {@link Session} 完成，
+ * Session 持有可复用的字符缓冲区，每个线程各用一个。热路径上只查表、不用正则、不分配对象。
+ * 构图与查询使用同一个 Tokenizer，保证两边对单词的归一化一致。
+ */
+final class Tokenizer {
+    /** 字母判定方式 */
+    enum Mode {
+        /** 只认 ASCII 字母 a-z / A-Z，其余字符均为分隔符（与最初的 [^a-z]+ 规则一致） */
+        ASCII,
+        /** 认所有 Unicode 字母（Character.isLetter），统一转为小写 */
+        UNICODE
+    }
+
+    /** 接收切出的单词；buf 会被复用，需要保留时自行复制 */
+    interface TokenSink {
+        void token(char[] buf, int len);
+    }
+
+    // ASCII 查表：字母映射为对应小写字母，其余为 0
+    private static final char[] ASCII_LOWER = new char[128];
+    static {
+        for (char c = 'a'; c <= 'z'; c++) ASCII_LOWER[c] = c;
+        for (char c = 'A'; c <= 'Z'; c++) ASCII_LOWER[c] = (char) (c + ('a' - 'A'));
+    }
+
+    final Mode mode;
+    final boolean stem;
+    private final SliceSet stopwords;
+
+    Tokenizer(Mode mode, boolean stem, Collection<String> stopwords) {
+        this.mode = mode;
+        this.stem = stem;
+        this.stopwords = new SliceSet(stopwords);
+    }
+
+    /** 默认配置：ASCII、不做词干化、无停用词，与原先的 toLowerCase().replaceAll("[^a-z]+", " ") 结果相同 */
+    static Tokenizer ascii() {
+        return new Tokenizer(Mode.ASCII, false, Collections.emptyList());
+    }
+
+    /**
+     * 由系统属性构建：textgraph.tokenizer=ascii|unicode，textgraph.stem=true|false，
+     * textgraph.stopwords=停用词文件路径（每行一个，UTF-8）。
+     */
+    static Tokenizer fromConfig() {
+        String m = System.getProperty("textgraph.tokenizer", "ascii").trim().toLowerCase();
+        Mode mode;
+        switch (m) {
+            case "ascii": mode = Mode.ASCII; break;
+            case "unicode": mode = Mode.UNICODE; break;
+            default: throw new IllegalArgumentException("未知的 textgraph.tokenizer: " + m);
+        }
+        boolean stem = Boolean.getBoolean("textgraph.stem");
+        List<String> stop = new ArrayList<>();
+        String file = System.getProperty("textgraph.stopwords");
+        if (file != null && !file.trim().isEmpty()) {
+            try {
+                // 停用词本身也经过同样的归一化，保证与切出的单词可比
+                Tokenizer plain = new Tokenizer(mode, stem, Collections.emptyList());
+                for (String line : Files.readAllLines(Paths.get(file.trim()), StandardCharsets.UTF_8))
+                    stop.addAll(plain.tokenize(line));
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("停用词文件读取失败: " + ex.getMessage(), ex);
+            }
+        }
+        return new Tokenizer(mode, stem, stop);
+    }
+
+    Session newSession() {
+        return new Session();
+    }
+
+    /** 把整段文本切成单词列表（会分配字符串，适合查询等非热路径） */
+    List<String> tokenize(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null) return out;
+        Session s = newSession();
+        TokenSink sink = (buf, len) -> out.add(new String(buf, 0, len));
+        s.feed(text, sink);
+        s.finish(sink);
+        return out;
+    }
+
+    /**
+     * 查询用：把用户输入的单个单词归一化，切不出单词时返回 null。
+     * 切出不止一个单词时（如 "New-York"、"can't"）抛出 IllegalArgumentException，不悄悄只取第一个。
+     */
+    String normalize(String word) {
+        if (word == null) return null;
+        List<String> tokens = tokenize(word);
+        if (tokens.size() > 1) throw new IllegalArgumentException("请输入单个单词: " + word.trim());
+        return tokens.isEmpty() ? null : tokens.getFirst();
+    }
+
+    /**
+     * 一次流式切分会话：可多次 feed，最后 finish。跨 feed 调用被截断的单词会正确拼接。
+     * 不是线程安全的。
+     */
+    final class Session {
+        private char[] buf = new char[32];
+        private int len;
+        private char pendingHigh;   // UNICODE 模式下被截断的高位代理项
+
+        void feed(CharSequence text, TokenSink sink) {
+            for (int i = 0, n = text.length(); i < n; i++) accept(text.charAt(i), sink);
+        }
+
+        void feed(char[] cbuf, int off, int count, TokenSink sink) {
+            for (int i = off, end = off + count; i < end; i++) accept(cbuf[i], sink);
+        }
+
+        /** 输出最后一个未结束的单词 */
+        void finish(TokenSink sink) {
+            pendingHigh = 0;
+            emit(sink);
+        }
+
+        private void accept(char c, TokenSink sink) {
+            if (c < 128) {
+                // 未配对的高位代理项不是字母，按分隔符处理，也不能与之后的低位代理项拼成码点
+                if (pendingHigh != 0) dropPendingHigh(sink);
+                char lower = ASCII_LOWER[c];
+                if (lower != 0) append(lower);
+                else emit(sink);
+                return;
+            }
+            if (mode == Mode.ASCII) {
+                emit(sink);
+                return;
+            }
+            if (Character.isHighSurrogate(c)) {
+                if (pendingHigh != 0) dropPendingHigh(sink);
+                pendingHigh = c;
+                return;
+            }
+            if (Character.isLowSurrogate(c) && pendingHigh != 0) {
+                int cp = Character.toCodePoint(pendingHigh, c);
+                pendingHigh = 0;
+                if (Character.isLetter(cp)) {
+                    int lower = Character.toLowerCase(cp);
+                    append(Character.highSurrogate(lower));
+                    append(Character.lowSurrogate(lower));
+                } else {
+                    emit(sink);
+                }
+                return;
+            }
+            if (pendingHigh != 0) dropPendingHigh(sink);
+            if (Character.isLetter(c)) append(Character.toLowerCase(c));
+            else emit(sink);
+        }
+
+        private void dropPendingHigh(TokenSink sink) {
+            pendingHigh = 0;
+            emit(sink);
+        }
+
+        private void append(char c) {
+            if (len == buf.length) buf = Arrays.copyOf(buf, len * 2);
+            buf[len++] = c;
+        }
+
+        private void emit(TokenSink sink) {
+            if (len == 0) return;
+            if (stem) len = Stemmer.stem(buf, len);
+            if (len > 0 && !stopwords.contains(buf, len)) sink.token(buf, len);
+            len = 0;
+        }
+    }
+
+    /**
+     * 把字符片段映射为共享的 String 实例：同一个单词只在第一次出现时分配，
+     * 之后的出现直接返回已有实例。开放寻址，非线程安全。
+     */
+    static final class Interner {
+        private String[] table = new String[1024];
+        private int size;
+
+        String intern(char[] buf, int len) {
+            int h = hash(buf, len), mask = table.length - 1;
+            for (int i = h & mask; ; i = (i + 1) & mask) {
+                String s = table[i];
+                if (s == null) {
+                    s = new String(buf, 0, len);
+                    table[i] = s;
+                    if (++size * 2 > table.length) rehash();
+                    return s;
+                }
+                if (SliceSet.matches(s, buf, len)) return s;
+            }
+        }
+
+        private void rehash() {
+            String[] old = table;
+            table = new String[old.length * 2];
+            int mask = table.length - 1;
+            for (String s : old) {
+                if (s == null) continue;
+                int i = s.hashCode() & mask;
+                while (table[i] != null) i = (i + 1) & mask;
+                table[i] = s;
+            }
+        }
+    }
+
+    // 与 String.hashCode 相同的散列，便于与已有字符串比较
+    private static int hash(char[] buf, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++) h = 31 * h + buf[i];
+        return h;
+    }
+
+    /** 不分配对象即可判断字符片段是否在集合中的只读字符串集合 */
+    private static final class SliceSet {
+        private final String[] table;
+
+        SliceSet(Collection<String> words) {
+            int cap = 16;
+            while (cap < words.size() * 2) cap <<= 1;
+            table = new String[cap];
+            for (String w : words) {
+                int i = w.hashCode() & (cap - 1);
+                while (table[i] != null && !table[i].equals(w)) i = (i + 1) & (cap - 1);
+                table[i] = w;
+            }
+        }
+
+        boolean contains(char[] buf, int len) {
+            int mask = table.length - 1;
+            for (int i = hash(buf, len) & mask; table[i] != null; i = (i + 1) & mask)
+                if (matches(table[i], buf, len)) return true;
+            return false;
+        }
+
+        static boolean matches(String s, char[] buf, int len) {
+            if (s.length() != len) return false;
+            for (int i = 0; i < len; i++)
+                if (s.charAt(i) != buf[i]) return false;
+            return true;
+        }
+    }
+
+    /**
+     * 轻量英文词干化：Porter 算法的第 1a、1b 步（复数与 -ed / -ing 词尾），原地修改缓冲区。
+     * 只处理纯 ASCII 小写单词，其余单词原样返回。
+     */
+    static final class Stemmer {
+        private Stemmer() {}
+
+        static int stem(char[] w, int len) {
+            if (len <= 2) return len;
+            for (int i = 0; i < len; i++)
+                if (w[i] < 'a' || w[i] > 'z') return len;
+            // 1a
+            if (endsWith(w, len, "sses")) len -= 2;
+            else if (endsWith(w, len, "ies")) len -= 2;
+            else if (!endsWith(w, len, "ss") && w[len - 1] == 's') len -= 1;
+            // 1b
+            if (endsWith(w, len, "eed")) {
+                if (measure(w, len - 3) > 0) len -= 1;
+                return len;
+            }
+            int cut = endsWith(w, len, "ed") ? 2 : endsWith(w, len, "ing") ? 3 : 0;
+            if (cut == 0 || !hasVowel(w, len - cut)) return len;
+            len -= cut;
+            if (endsWith(w, len, "at") || endsWith(w, len, "bl") || endsWith(w, len, "iz")) {
+                w[len++] = 'e';
+            } else if (len >= 2 && w[len - 1] == w[len - 2] && isConsonant(w, len - 1)
+                    && "lsz".indexOf(w[len - 1]) < 0) {
+                len -= 1;
+            } else if (measure(w, len) == 1 && cvc(w, len)) {
+                w[len++] = 'e';
+            }
+            return len;
+        }
+
+        private static boolean endsWith(char[] w, int len, String suffix) {
+            int n = suffix.length();
+            if (len < n) return false;
+            for (int i = 0; i < n; i++)
+                if (w[len - n + i] != suffix.charAt(i)) return false;
+            return true;
+        }
+
+        private static boolean isConsonant(char[] w, int i) {
+            switch (w[i]) {
+                case 'a': case 'e': case 'i': case 'o': case 'u': return false;
+                case 'y': return i == 0 || !isConsonant(w, i - 1);
+                default: return true;
+            }
+        }
+
+        private static boolean hasVowel(char[] w, int len) {
+            for (int i = 0; i < len; i++)
+                if (!isConsonant(w, i)) return true;
+            return false;
+        }
+
+        // Porter 中的 m：词干中 “元音串+辅音串” 的组数
+        private static int measure(char[] w, int len) {
+            int m = 0, i = 0;
+            while (i < len && isConsonant(w, i)) i++;
+            while (i < len) {
+                while (i < len && !isConsonant(w, i)) i++;
+                if (i >= len) break;
+                while (i < len && isConsonant(w, i)) i++;
+                m++;
+            }
+            return m;
+        }
+
+        // 以 辅音-元音-辅音 结尾，且最后一个辅音不是 w/x/y
+        private static boolean cvc(char[] w, int len) {
+            if (len < 3) return false;
+            char c = w[len - 1];
+            return isConsonant(w, len - 3) && !isConsonant(w, len - 2) && isConsonant(w, len - 1)
+                    && c != 'w' && c != 'x' && c != 'y';
+        }
+    }
+}